@@ -0,0 +1,256 @@
+package dictionary;
+
+import java.util.*;
+
+/**
+ * Anagram index over the dictionary words, for word-game queries on a rack
+ * of letters.
+ *
+ * Every word is reduced to its signature, its letters in sorted order
+ * ("listen" and "silent" are both "eilnst"), and the signatures are stored
+ * in a trie whose nodes hold the words with that exact signature:
+ * - exact anagrams of a rack are one walk down the rack's signature
+ * - words that can be built from the rack (sub-anagrams) are found by a
+ *   depth-first walk that only follows letters still left in the rack;
+ *   because signatures are sorted, every multiset of rack letters is
+ *   reached by one path at most, so a 10-letter rack visits at most 1024
+ *   nodes plus those opened by blanks, whatever the size of the lexicon
+ *
+ * Only letters count: spaces, hyphens and apostrophes are ignored, so
+ * "dormitory" and "dirty room" are anagrams. A {@code ?} in the rack is a
+ * blank tile that stands for any one letter.
+ */
+final class AnagramIndex {
+
+    /** Filter prefix for exact anagrams, e.g. "=listen" */
+    static final char EXACT = '=';
+    /** Filter prefix for words built from the letters, e.g. "+retains?" */
+    static final char BUILD = '+';
+    /** Blank tile in a rack */
+    static final char BLANK = '?';
+
+    private final Node root = new Node();
+
+    /** Trie node; children are kept in small parallel arrays sorted by char */
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        /** Words whose signature ends here, or null */
+        NavigableSet<String> words;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i < 0 ? null : children[i];
+        }
+
+        Node childOrNew(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) return children[i];
+            i = -i - 1;
+            char[] nextLabels = new char[labels.length + 1];
+            System.arraycopy(labels, 0, nextLabels, 0, i);
+            nextLabels[i] = c;
+            System.arraycopy(labels, i, nextLabels, i + 1, labels.length - i);
+            Node[] next = new Node[children.length + 1];
+            System.arraycopy(children, 0, next, 0, i);
+            next[i] = new Node();
+            System.arraycopy(children, i, next, i + 1, children.length - i);
+            labels = nextLabels;
+            children = next;
+            return next[i];
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            char[] nextLabels = new char[labels.length - 1];
+            System.arraycopy(labels, 0, nextLabels, 0, i);
+            System.arraycopy(labels, i + 1, nextLabels, i, labels.length - i - 1);
+            Node[] next = new Node[children.length - 1];
+            System.arraycopy(children, 0, next, 0, i);
+            System.arraycopy(children, i + 1, next, i, children.length - i - 1);
+            labels = nextLabels;
+            children = next;
+        }
+    }
+
+    /**
+     * Builds the index over an initial set of words.
+     *
+     * @param words normalized words
+     */
+    AnagramIndex(Collection<String> words) {
+        for (String w : words) add(w);
+    }
+
+    /**
+     * @param query filter text
+     * @return true if the text is an anagram query ("=letters" or "+letters")
+     */
+    static boolean isQuery(String query) {
+        return query.length() > 1 && (query.charAt(0) == EXACT || query.charAt(0) == BUILD);
+    }
+
+    /**
+     * @param word normalized word
+     */
+    synchronized void add(String word) {
+        String sig = signature(word);
+        if (sig.isEmpty()) return;
+        Node n = root;
+        for (int i = 0; i < sig.length(); i++) n = n.childOrNew(sig.charAt(i));
+        if (n.words == null) n.words = new TreeSet<>();
+        n.words.add(word);
+    }
+
+    /**
+     * @param word normalized word
+     */
+    synchronized void remove(String word) {
+        String sig = signature(word);
+        if (sig.isEmpty()) return;
+        Node[] path = new Node[sig.length() + 1];
+        Node n = root;
+        path[0] = n;
+        for (int i = 0; i < sig.length(); i++) {
+            n = n.child(sig.charAt(i));
+            if (n == null) return;
+            path[i + 1] = n;
+        }
+        if (n.words == null || !n.words.remove(word)) return;
+        if (n.words.isEmpty()) n.words = null;
+
+        // drop nodes that no longer lead to a word
+        for (int i = sig.length(); i > 0; i--) {
+            Node p = path[i];
+            if (p.words != null || p.children.length != 0) break;
+            path[i - 1].removeChild(sig.charAt(i - 1));
+        }
+    }
+
+    /**
+     * Finds the words that use exactly the letters of a rack.
+     *
+     * @param letters rack in any case; {@code ?} is a blank
+     * @return sorted anagrams, possibly including the rack itself
+     */
+    synchronized List<String> anagrams(String letters) {
+        Rack rack = Rack.of(letters);
+        if (rack.size == 0) return List.of();
+        List<String> out = new ArrayList<>();
+        if (rack.blanks == 0) {
+            Node n = root;
+            for (int i = 0; i < rack.letters.length && n != null; i++) {
+                for (int j = 0; j < rack.counts[i] && n != null; j++) n = n.child(rack.letters[i]);
+            }
+            if (n != null && n.words != null) out.addAll(n.words);
+            return out;
+        }
+        collect(root, rack, 0, rack.size, out);
+        Collections.sort(out);
+        return out;
+    }
+
+    /**
+     * Finds the words that can be built from some of the letters of a rack.
+     *
+     * @param letters   rack in any case; {@code ?} is a blank
+     * @param minLength shortest word wanted, in letters
+     * @return words, longest first, then alphabetical
+     */
+    synchronized List<String> build(String letters, int minLength) {
+        Rack rack = Rack.of(letters);
+        if (rack.size == 0) return List.of();
+        List<String> out = new ArrayList<>();
+        collect(root, rack, 0, Math.max(1, minLength), out);
+        out.sort(Comparator.comparingInt(AnagramIndex::letterCount).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        return out;
+    }
+
+    /**
+     * Depth-first walk over the signatures that the rack can still pay for.
+     *
+     * @param depth letters used so far
+     * @param min   depth from which words are collected
+     */
+    private static void collect(Node n, Rack rack, int depth, int min, List<String> out) {
+        if (n.words != null && depth >= min) out.addAll(n.words);
+        for (int c = 0; c < n.labels.length; c++) {
+            int i = rack.indexOf(n.labels[c]);
+            if (i >= 0 && rack.counts[i] > 0) {
+                rack.counts[i]--;
+                collect(n.children[c], rack, depth + 1, min, out);
+                rack.counts[i]++;
+            } else if (rack.blanks > 0) {
+                rack.blanks--;
+                collect(n.children[c], rack, depth + 1, min, out);
+                rack.blanks++;
+            }
+        }
+    }
+
+    /** Letters of a query with their counts, consumed during a walk */
+    private static final class Rack {
+        final char[] letters;
+        final int[] counts;
+        final int size;
+        int blanks;
+
+        private Rack(char[] letters, int[] counts, int blanks) {
+            this.letters = letters;
+            this.counts = counts;
+            this.blanks = blanks;
+            int n = blanks;
+            for (int c : counts) n += c;
+            this.size = n;
+        }
+
+        static Rack of(String query) {
+            int blanks = 0;
+            for (int i = 0; i < query.length(); i++) {
+                if (query.charAt(i) == BLANK) blanks++;
+            }
+            String sig = signature(KeyNormalizer.normalize(query));
+            char[] letters = new char[sig.length()];
+            int[] counts = new int[sig.length()];
+            int n = 0;
+            for (int i = 0; i < sig.length(); i++) {
+                char c = sig.charAt(i);
+                if (n > 0 && letters[n - 1] == c) {
+                    counts[n - 1]++;
+                } else {
+                    letters[n] = c;
+                    counts[n++] = 1;
+                }
+            }
+            return new Rack(Arrays.copyOf(letters, n), Arrays.copyOf(counts, n), blanks);
+        }
+
+        int indexOf(char c) {
+            return Arrays.binarySearch(letters, c);
+        }
+    }
+
+    /**
+     * @param word normalized word
+     * @return its letters in sorted order
+     */
+    static String signature(String word) {
+        char[] letters = new char[word.length()];
+        int n = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetter(c)) letters[n++] = c;
+        }
+        Arrays.sort(letters, 0, n);
+        return new String(letters, 0, n);
+    }
+
+    private static int letterCount(String word) {
+        int n = 0;
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isLetter(word.charAt(i))) n++;
+        }
+        return n;
+    }
+}
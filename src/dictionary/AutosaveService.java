@@ -0,0 +1,165 @@
+package dictionary;
+
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Saves the dictionary in the background shortly after it changes.
+ *
+ * The service's change signal only arms a timer: a save runs once no edit
+ * has been made for the current delay, so a burst of edits is coalesced
+ * into one write. Each edit pushes the save back, but never more than
+ * {@link #MAX_WAIT_MS} past the start of the burst, so steady typing is
+ * still saved.
+ * Saves run one at a time on a single low-priority daemon thread and are
+ * incremental (see {@link DictionaryService#saveSegments}), so their cost
+ * follows the number of edits.
+ *
+ * Backpressure: when a save takes longer than {@link #SLOW_SAVE_MS}, or
+ * fails, the delay before the next one doubles (up to {@link #MAX_DELAY_MS});
+ * fast saves bring it back down to the base delay. Failed saves keep their
+ * changes pending and are retried.
+ *
+ * Each save reports its duration and lag (time from the first unsaved edit
+ * to the end of the save) to a status consumer.
+ */
+public class AutosaveService implements AutoCloseable {
+
+    /** Quiet period after the last edit before saving */
+    public static final long BASE_DELAY_MS = 2_000;
+
+    /** Longest a burst of edits can hold its save back (unless the delay has grown past it) */
+    public static final long MAX_WAIT_MS = 10_000;
+
+    /** Longest delay reached by backing off */
+    public static final long MAX_DELAY_MS = 60_000;
+
+    /** Saves slower than this make the next one wait longer */
+    public static final long SLOW_SAVE_MS = 500;
+
+    private final DictionaryService service;
+    private final Path dir;
+    private final BooleanSupplier canSave;
+    private final Consumer<String> status;
+    private final ScheduledThreadPoolExecutor executor;
+
+    /** Guarded by this */
+    private boolean scheduled;
+    /** Guarded by this; nanoTime of the first edit not saved yet, or 0 */
+    private long firstChange;
+    /** Guarded by this; nanoTime of the latest edit */
+    private long lastChange;
+    /** Guarded by this; nanoTime the current wait started (first edit or retry), or 0 */
+    private long waitStart;
+    /** Current delay; grows while saves are slow or failing */
+    private volatile long delayMs = BASE_DELAY_MS;
+
+    /**
+     * Creates the autosaver and subscribes it to the service's changes.
+     *
+     * @param service service to save
+     * @param dir     segment directory to save into
+     * @param canSave false while saving is not safe (e.g. during a load);
+     *                the save is then postponed
+     * @param status  receives a one-line report after each save attempt
+     *                (called on the autosave thread)
+     */
+    public AutosaveService(DictionaryService service, Path dir, BooleanSupplier canSave, Consumer<String> status) {
+        this.service = service;
+        this.dir = dir;
+        this.canSave = canSave;
+        this.status = status;
+        this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "dictionary-autosave");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        service.onChange(this::changed);
+    }
+
+    /**
+     * Called on every edit; schedules a save unless one is already pending,
+     * which then waits for this edit's quiet period.
+     */
+    private synchronized void changed() {
+        long now = System.nanoTime();
+        if (firstChange == 0) firstChange = now;
+        if (waitStart == 0) waitStart = now;
+        lastChange = now;
+        if (scheduled || executor.isShutdown()) return;
+        scheduled = true;
+        executor.schedule(this::save, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        long since;
+        synchronized (this) {
+            // edits since the timer was armed push the save back, up to the cap
+            long delay = TimeUnit.MILLISECONDS.toNanos(delayMs);
+            long due = Math.min(lastChange + delay,
+                    waitStart + Math.max(delay, TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS)));
+            long now = System.nanoTime();
+            if (waitStart != 0 && due - now > 0 && !executor.isShutdown()) {
+                executor.schedule(this::save, due - now, TimeUnit.NANOSECONDS);
+                return;
+            }
+            scheduled = false;
+            waitStart = 0;
+            since = firstChange;
+            firstChange = 0;
+        }
+        if (service.pendingChanges() == 0) return;
+
+        if (!canSave.getAsBoolean()) {
+            reschedule(since);
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        try {
+            int segments = service.saveSegments(dir);
+            long ms = (System.nanoTime() - t0) / 1_000_000;
+            long lagMs = since == 0 ? ms : (System.nanoTime() - since) / 1_000_000;
+            delayMs = ms > SLOW_SAVE_MS ? Math.min(MAX_DELAY_MS, delayMs * 2) : BASE_DELAY_MS;
+            status.accept(String.format("Autosaved %d segment(s) in %d ms, lag %.1f s", segments, ms, lagMs / 1000.0));
+        } catch (Exception e) {
+            delayMs = Math.min(MAX_DELAY_MS, delayMs * 2);
+            status.accept("Autosave failed: " + e.getMessage() + " (retrying in " + delayMs / 1000 + " s)");
+            reschedule(since);
+        }
+        // edits made while saving are already pending and have scheduled the next save
+    }
+
+    /**
+     * Tries again later, keeping the time of the first unsaved edit.
+     */
+    private synchronized void reschedule(long since) {
+        if (since != 0 && (firstChange == 0 || since < firstChange)) firstChange = since;
+        waitStart = lastChange = System.nanoTime();
+        if (scheduled || executor.isShutdown()) return;
+        scheduled = true;
+        executor.schedule(this::save, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops scheduling saves and waits for a running one to finish, so the
+     * caller can make a final save without overlapping it. Pending changes
+     * stay in the service.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            executor.shutdown(); // under the lock so changed() never schedules after it
+        }
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package dictionary;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless batch lookup: loads a dictionary once, then streams queries (one
+ * word per line) from a file or stdin and writes one result line per query,
+ * in input order, to stdout.
+ *
+ * Queries are read in batches. Each batch is resolved on the common
+ * fork-join pool, split into chunks across cores, while the main thread
+ * reads the next batch and writes the previous one, so reading, lookup and
+ * output overlap. Lookups go through one {@link DictionarySnapshot} and do
+ * not count towards search frequency.
+ *
+ * Output formats:
+ * - pipe (default): the record format; a miss is the query with empty fields
+ * - JSON lines ({@code --json}): one object per query with a "found" flag
+ *
+ * Usage: {@code BatchLookup <dictionary> [queries|-] [--json] [--batch=N]}
+ *
+ * The dictionary may be a record file (mapped lazily) or a compressed
+ * snapshot ending in ".dicz". Load time and throughput go to stderr.
+ */
+public class BatchLookup {
+
+    /** Default number of queries read and resolved per batch */
+    public static final int DEFAULT_BATCH = 8192;
+
+    /** Queries resolved by one fork-join task without splitting further */
+    private static final int CHUNK = 512;
+
+    private BatchLookup() { }
+
+    public static void main(String[] args) throws IOException {
+        Path dictionary = null;
+        String queries = "-";
+        boolean json = false;
+        int batch = DEFAULT_BATCH;
+        int positional = 0;
+        for (String arg : args) {
+            if (arg.equals("--json")) json = true;
+            else if (arg.startsWith("--batch=")) batch = Math.max(1, Integer.parseInt(arg.substring(8)));
+            else if (positional++ == 0) dictionary = Path.of(arg);
+            else queries = arg;
+        }
+        if (dictionary == null) {
+            System.err.println("Usage: BatchLookup <dictionary> [queries|-] [--json] [--batch=N]");
+            return;
+        }
+
+        long t0 = System.nanoTime();
+        DictionaryService service = new DictionaryService();
+        service.mountFile(dictionary);
+        DictionarySnapshot view = service.snapshot();
+        long loaded = System.nanoTime() - t0;
+
+        InputStream in = queries.equals("-") ? System.in : Files.newInputStream(Path.of(queries));
+        long[] counts;
+        t0 = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+             Output out = json ? new JsonOutput(System.out) : new PipeOutput(System.out)) {
+            counts = run(view, reader, out, batch);
+        }
+        long elapsed = System.nanoTime() - t0;
+
+        double seconds = elapsed / 1e9;
+        System.err.printf("loaded %d words in %.1f ms%n", view.count(), loaded / 1e6);
+        System.err.printf("%d queries, %d found, in %.1f ms (%.0f queries/s)%n",
+                counts[0], counts[1], elapsed / 1e6, seconds == 0 ? 0.0 : counts[0] / seconds);
+    }
+
+    /**
+     * Streams every query through the snapshot, keeping one batch in flight
+     * while the previous one is written.
+     *
+     * @return number of queries and number of hits
+     */
+    private static long[] run(DictionarySnapshot view, BufferedReader reader, Output out, int batch)
+            throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        long total = 0;
+        long found = 0;
+
+        Batch pending = null;
+        while (true) {
+            Batch next = Batch.read(reader, batch);
+            if (next != null) next.task = pool.submit(new Resolve(view, next.queries, next.results, 0, next.size));
+            if (pending != null) {
+                pending.task.join();
+                for (int i = 0; i < pending.size; i++) {
+                    if (pending.results[i] != null) found++;
+                    out.write(pending.queries[i], pending.results[i]);
+                }
+                total += pending.size;
+            }
+            if (next == null) break;
+            pending = next;
+        }
+        return new long[] { total, found };
+    }
+
+    /** One batch of queries and the slots their results are resolved into */
+    private static final class Batch {
+        final String[] queries;
+        final dictionaryEntry[] results;
+        int size;
+        ForkJoinTask<?> task;
+
+        private Batch(int capacity) {
+            queries = new String[capacity];
+            results = new dictionaryEntry[capacity];
+        }
+
+        /**
+         * @return the next batch, or null at end of input
+         */
+        static Batch read(BufferedReader reader, int capacity) throws IOException {
+            Batch b = new Batch(capacity);
+            String line;
+            while (b.size < capacity && (line = reader.readLine()) != null) {
+                b.queries[b.size++] = line.trim();
+            }
+            return b.size == 0 ? null : b;
+        }
+    }
+
+    /**
+     * Resolves a range of queries, splitting it in halves until it is small
+     * enough to run directly. Each slot is written by exactly one task.
+     */
+    @SuppressWarnings("serial") // ForkJoinTask is Serializable, but these tasks never leave the pool
+    private static final class Resolve extends RecursiveAction {
+        private final DictionarySnapshot view;
+        private final String[] queries;
+        private final dictionaryEntry[] results;
+        private final int from;
+        private final int to;
+
+        Resolve(DictionarySnapshot view, String[] queries, dictionaryEntry[] results, int from, int to) {
+            this.view = view;
+            this.queries = queries;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                for (int i = from; i < to; i++) {
+                    String q = queries[i];
+                    results[i] = q.isEmpty() ? null : view.resolve(KeyNormalizer.normalize(q));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Resolve(view, queries, results, from, mid),
+                    new Resolve(view, queries, results, mid, to));
+        }
+    }
+
+    /** Writes one result line per query */
+    private interface Output extends Closeable {
+        void write(String query, dictionaryEntry entry) throws IOException;
+    }
+
+    /** Record format, sanitized by {@link RecordCodec.Writer} */
+    private static final class PipeOutput implements Output {
+        private final RecordCodec.Writer writer;
+
+        PipeOutput(OutputStream out) {
+            writer = new RecordCodec.Writer(Channels.newChannel(out));
+        }
+
+        @Override
+        public void write(String query, dictionaryEntry entry) throws IOException {
+            writer.write(entry != null ? entry : new dictionaryEntry(query, "", "", "", null));
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /** One JSON object per line */
+    private static final class JsonOutput implements Output {
+        private final Writer out;
+        private final StringBuilder line = new StringBuilder(256);
+
+        JsonOutput(OutputStream out) {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        @Override
+        public void write(String query, dictionaryEntry entry) throws IOException {
+            line.setLength(0);
+            line.append("{\"query\":");
+            quote(query);
+            line.append(",\"found\":").append(entry != null);
+            if (entry != null) {
+                line.append(",\"word\":");
+                quote(entry.getWord());
+                line.append(",\"pronunciation\":");
+                quote(entry.getPronounce());
+                line.append(",\"definition\":");
+                quote(entry.getDefinition());
+                line.append(",\"example\":");
+                quote(entry.getExample());
+                line.append(",\"synonyms\":[");
+                List<String> syn = entry.getSyn();
+                for (int i = 0; i < syn.size(); i++) {
+                    if (i > 0) line.append(',');
+                    quote(syn.get(i));
+                }
+                line.append(']');
+            }
+            line.append("}\n");
+            out.append(line);
+        }
+
+        private void quote(String s) {
+            line.append('"');
+            if (s != null) {
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    switch (c) {
+                        case '"' -> line.append("\\\"");
+                        case '\\' -> line.append("\\\\");
+                        case '\n' -> line.append("\\n");
+                        case '\r' -> line.append("\\r");
+                        case '\t' -> line.append("\\t");
+                        default -> {
+                            if (c < 0x20) line.append(String.format("\\u%04x", (int) c));
+                            else line.append(c);
+                        }
+                    }
+                }
+            }
+            line.append('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
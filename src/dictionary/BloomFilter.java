@@ -0,0 +1,193 @@
+package dictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over normalized dictionary keys.
+ *
+ * Answers "definitely absent" or "maybe present" in a few memory reads, so a
+ * lookup of a missing word can be rejected before it walks the layers or
+ * inflates a compressed block. There are no false negatives; the false
+ * positive rate is chosen when the filter is sized and can be read back
+ * with {@link #expectedFpp()} as keys are added.
+ *
+ * Keys cannot be removed. A filter that has seen many deletions still
+ * answers correctly but passes more misses, and should be rebuilt.
+ *
+ * Adds and lookups are thread-safe; bits are set with atomic OR.
+ */
+final class BloomFilter {
+
+    /** Default false positive rate */
+    static final double DEFAULT_FPP = 0.01;
+
+    private static final int MAGIC = 0x424C4D46; // "BLMF"
+    private static final int VERSION = 1;
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final LongAdder added = new LongAdder();
+
+    private BloomFilter(long bits, int hashes) {
+        this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Creates a filter sized for a number of keys and a target false
+     * positive rate (m = -n ln p / ln² 2 bits, k = m/n ln 2 hashes).
+     *
+     * @param expected number of keys the filter will hold
+     * @param fpp      target false positive rate, between 0 and 1
+     * @return empty filter
+     */
+    static BloomFilter create(long expected, double fpp) {
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+        long n = Math.max(1, expected);
+        long m = Math.max(64, (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2))));
+        m = Math.min(m, (long) Integer.MAX_VALUE * 64);
+        int k = Math.max(1, Math.min(16, (int) Math.round((double) m / n * Math.log(2))));
+        return new BloomFilter(m, k);
+    }
+
+    /**
+     * Creates a filter for a known set of keys with room for a quarter more
+     * (and at least 1024), so its estimated rate starts well under the
+     * target and stays under it as keys are added later.
+     *
+     * @param keys number of keys about to be added
+     * @param fpp  target false positive rate, between 0 and 1
+     * @return empty filter
+     */
+    static BloomFilter withHeadroom(long keys, double fpp) {
+        return create(keys + keys / 4 + 1024, fpp);
+    }
+
+    /**
+     * @param key normalized word
+     */
+    void add(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((words.get(w) & mask) == 0) words.getAndAccumulate(w, mask, (a, b) -> a | b);
+        }
+        added.increment();
+    }
+
+    /**
+     * @param key normalized word
+     * @return false if the key was never added; true if it may have been
+     */
+    boolean mightContain(String key) {
+        long h = hash(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return number of add calls (duplicates included)
+     */
+    long added() {
+        return added.sum();
+    }
+
+    /**
+     * @return size of the bit array in bytes
+     */
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    /**
+     * @return number of hash functions
+     */
+    int hashes() {
+        return hashes;
+    }
+
+    /**
+     * Estimates the current false positive rate from the share of bits set.
+     *
+     * @return probability that a key never added passes {@link #mightContain}
+     */
+    double expectedFpp() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) set += Long.bitCount(words.get(i));
+        return Math.pow((double) set / bits, hashes);
+    }
+
+    /**
+     * @return a copy that can be added to independently
+     */
+    BloomFilter copy() {
+        BloomFilter c = new BloomFilter(bits, hashes);
+        for (int i = 0; i < words.length(); i++) c.words.set(i, words.get(i));
+        c.added.add(added());
+        return c;
+    }
+
+    /**
+     * @param out destination
+     * @throws IOException if the write fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(bits);
+        out.writeInt(hashes);
+        out.writeLong(added());
+        for (int i = 0; i < words.length(); i++) out.writeLong(words.get(i));
+    }
+
+    /**
+     * @param in source positioned at a filter written by {@link #writeTo}
+     * @return the filter
+     * @throws IOException if the data is not a filter
+     */
+    static BloomFilter readFrom(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a key filter");
+        long bits = in.readLong();
+        int hashes = in.readInt();
+        if (bits < 64 || bits > (long) Integer.MAX_VALUE * 64 || hashes < 1 || hashes > 16) {
+            throw new IOException("Corrupt key filter");
+        }
+        BloomFilter f = new BloomFilter(bits, hashes);
+        f.added.add(in.readLong());
+        for (int i = 0; i < f.words.length(); i++) f.words.set(i, in.readLong());
+        return f;
+    }
+
+    /**
+     * 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer so
+     * both halves are usable as independent hashes.
+     */
+    private static long hash(String key) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,198 @@
+package dictionary;
+
+import java.util.*;
+
+/**
+ * Autocomplete index: the most searched words under every prefix.
+ *
+ * A trie over the words that have been searched, where every node caches
+ * its {@link #MAX_K} best words (highest count first, then alphabetical).
+ * Completing a prefix walks the prefix and copies the node's cache, so it
+ * costs O(prefix length + k) however many words share the prefix.
+ *
+ * Counts only grow between resets, so a search updates the caches along
+ * its word's path in O(word length * k): the word either moves up within a
+ * cache or enters it by pushing out the last one. Forgetting a word (it was
+ * deleted) refills the caches on its path from their children.
+ */
+final class CompletionIndex {
+
+    /** Completions cached per node; longer requests are cut to this */
+    static final int MAX_K = 10;
+
+    private Node root = new Node();
+
+    /** Trie node; children are kept in small parallel arrays sorted by char */
+    private static final class Node {
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+        /** Word ending here, or null */
+        String word;
+        int count;
+        /** Best terminal nodes in this subtree, best first */
+        Node[] top = new Node[0];
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i < 0 ? null : children[i];
+        }
+
+        Node childOrNew(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            if (i >= 0) return children[i];
+            i = -i - 1;
+            labels = insert(labels, i, c);
+            Node n = new Node();
+            Node[] next = new Node[children.length + 1];
+            System.arraycopy(children, 0, next, 0, i);
+            next[i] = n;
+            System.arraycopy(children, i, next, i + 1, children.length - i);
+            children = next;
+            return n;
+        }
+
+        private static char[] insert(char[] a, int i, char c) {
+            char[] next = new char[a.length + 1];
+            System.arraycopy(a, 0, next, 0, i);
+            next[i] = c;
+            System.arraycopy(a, i, next, i + 1, a.length - i);
+            return next;
+        }
+    }
+
+    /** Higher count first, then alphabetical */
+    private static int compare(Node a, Node b) {
+        int cmp = Integer.compare(b.count, a.count);
+        return cmp != 0 ? cmp : a.word.compareTo(b.word);
+    }
+
+    /**
+     * Adds to a word's count and moves it up in the caches of its prefixes.
+     *
+     * @param word  normalized word
+     * @param delta amount to add (positive)
+     */
+    synchronized void increment(String word, int delta) {
+        if (word.isEmpty() || delta <= 0) return;
+        Node[] path = new Node[word.length() + 1];
+        Node n = root;
+        path[0] = n;
+        for (int i = 0; i < word.length(); i++) {
+            n = n.childOrNew(word.charAt(i));
+            path[i + 1] = n;
+        }
+        n.word = word;
+        n.count += delta;
+        for (Node p : path) promote(p, n);
+    }
+
+    /**
+     * Places a terminal whose count just grew in one node's cache.
+     */
+    private static void promote(Node p, Node t) {
+        Node[] top = p.top;
+        int i = 0;
+        while (i < top.length && top[i] != t) i++;
+        if (i == top.length) {
+            if (top.length < MAX_K) {
+                top = Arrays.copyOf(top, top.length + 1);
+            } else if (compare(t, top[top.length - 1]) >= 0) {
+                return;
+            }
+            i = top.length - 1;
+            top[i] = t;
+            p.top = top;
+        }
+        for (; i > 0 && compare(top[i], top[i - 1]) < 0; i--) {
+            Node tmp = top[i];
+            top[i] = top[i - 1];
+            top[i - 1] = tmp;
+        }
+    }
+
+    /**
+     * Forgets a word and refills the caches of its prefixes.
+     *
+     * @param word normalized word
+     */
+    synchronized void remove(String word) {
+        Node[] path = new Node[word.length() + 1];
+        Node n = root;
+        path[0] = n;
+        for (int i = 0; i < word.length(); i++) {
+            n = n.child(word.charAt(i));
+            if (n == null) return;
+            path[i + 1] = n;
+        }
+        if (n.word == null) return;
+        n.word = null;
+        n.count = 0;
+        for (int i = path.length - 1; i >= 0; i--) {
+            Node p = path[i];
+            p.top = refill(p);
+            // drop nodes that no longer lead to a word
+            if (i > 0 && p.top.length == 0) {
+                Node parent = path[i - 1];
+                int j = Arrays.binarySearch(parent.labels, word.charAt(i - 1));
+                parent.labels = removeAt(parent.labels, j);
+                parent.children = removeAt(parent.children, j);
+            }
+        }
+    }
+
+    /**
+     * Recomputes a cache from the node's own word and its children's caches
+     * (any word in the subtree's best k is in some child's best k).
+     */
+    private static Node[] refill(Node p) {
+        PriorityQueue<Node> best = new PriorityQueue<>(MAX_K + 1, (a, b) -> compare(b, a));
+        if (p.word != null) best.add(p);
+        for (Node c : p.children) {
+            for (Node t : c.top) {
+                best.add(t);
+                if (best.size() > MAX_K) best.poll();
+            }
+        }
+        Node[] top = best.toArray(new Node[0]);
+        Arrays.sort(top, CompletionIndex::compare);
+        return top;
+    }
+
+    private static char[] removeAt(char[] a, int i) {
+        char[] next = new char[a.length - 1];
+        System.arraycopy(a, 0, next, 0, i);
+        System.arraycopy(a, i + 1, next, i, a.length - i - 1);
+        return next;
+    }
+
+    private static Node[] removeAt(Node[] a, int i) {
+        Node[] next = new Node[a.length - 1];
+        System.arraycopy(a, 0, next, 0, i);
+        System.arraycopy(a, i + 1, next, i, a.length - i - 1);
+        return next;
+    }
+
+    /**
+     * Forgets every word.
+     */
+    synchronized void clear() {
+        root = new Node();
+    }
+
+    /**
+     * Returns the most searched words starting with a prefix.
+     *
+     * @param prefix normalized prefix
+     * @param k      number of words wanted (at most {@link #MAX_K})
+     * @return up to k words, most searched first
+     */
+    synchronized List<String> complete(String prefix, int k) {
+        Node n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) n = n.child(prefix.charAt(i));
+        if (n == null) return List.of();
+        int size = Math.min(k, n.top.length);
+        List<String> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) words.add(n.top[i].word);
+        return words;
+    }
+}
@@ -0,0 +1,416 @@
+package dictionary;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compressed dictionary snapshot with block-level random access.
+ *
+ * Entries are written in sorted order, grouped into blocks of a fixed number
+ * of entries. Each block holds plain {@link RecordCodec} records and is
+ * compressed on its own with {@link Deflater}, so a single lookup only has to
+ * inflate one block, and a full load can inflate all blocks in parallel.
+ *
+ * File layout:
+ * <pre>
+ * "DICZ" version
+ * block 0 .. block n-1          (deflate streams)
+ * index:  n, then per block: first key, offset, compressed size, raw size, entries,
+ *         then a {@link BloomFilter} over every key (version 2)
+ * footer: index offset, "DICZ"
+ * </pre>
+ *
+ * The key filter lets a lookup of a missing word return without inflating
+ * a block. Version 1 files, written without it, are still readable.
+ *
+ * An open snapshot is a read-only {@link DictionarySource}; its word list is
+ * decoded from all blocks the first time a listing is requested.
+ */
+public class CompressedSnapshot implements DictionarySource {
+
+    /** Default number of entries per block */
+    public static final int DEFAULT_BLOCK_SIZE = 128;
+
+    private static final int MAGIC = 0x4449435A; // "DICZ"
+    private static final int VERSION = 2;
+    private static final int FOOTER = Long.BYTES + Integer.BYTES;
+
+    private final String name;
+    private final ByteBuffer data;
+    private final String[] firstKeys;
+    private final long[] offsets;
+    private final int[] compressedSizes;
+    private final int[] rawSizes;
+    private final int[] entryCounts;
+    private final BloomFilter filter;
+    private volatile String[] sortedKeys;
+
+    private CompressedSnapshot(String name, ByteBuffer data, String[] firstKeys, long[] offsets,
+                               int[] compressedSizes, int[] rawSizes, int[] entryCounts, BloomFilter filter) {
+        this.name = name;
+        this.data = data;
+        this.firstKeys = firstKeys;
+        this.offsets = offsets;
+        this.compressedSizes = compressedSizes;
+        this.rawSizes = rawSizes;
+        this.entryCounts = entryCounts;
+        this.filter = filter;
+    }
+
+    /**
+     * Writes entries to a compressed snapshot.
+     *
+     * @param path      destination file (replaced)
+     * @param entries   entries sorted by normalized word
+     * @param blockSize number of entries per compressed block
+     * @param fpp       target false positive rate of the saved key filter
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, Iterable<dictionaryEntry> entries, int blockSize, double fpp)
+            throws IOException {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize must be positive");
+
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(1 << 16);
+        RecordCodec.Writer records = new RecordCodec.Writer(Channels.newChannel(raw));
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        byte[] out = new byte[1 << 16];
+
+        ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+        DataOutputStream index = new DataOutputStream(indexBytes);
+        List<String> keys = new ArrayList<>();
+        int blocks = 0;
+
+        try (DataOutputStream file = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(path), 1 << 16))) {
+            file.writeInt(MAGIC);
+            file.writeInt(VERSION);
+            long offset = 2 * Integer.BYTES;
+
+            Iterator<dictionaryEntry> it = entries.iterator();
+            while (it.hasNext()) {
+                raw.reset();
+                String firstKey = null;
+                int count = 0;
+                while (count < blockSize && it.hasNext()) {
+                    dictionaryEntry e = it.next();
+                    if (firstKey == null) firstKey = e.getKey();
+                    keys.add(e.getKey());
+                    records.write(e);
+                    count++;
+                }
+                records.flush();
+
+                byte[] block = raw.toByteArray();
+                deflater.reset();
+                deflater.setInput(block);
+                deflater.finish();
+                int compressed = 0;
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(out);
+                    file.write(out, 0, n);
+                    compressed += n;
+                }
+
+                index.writeUTF(firstKey);
+                index.writeLong(offset);
+                index.writeInt(compressed);
+                index.writeInt(block.length);
+                index.writeInt(count);
+                offset += compressed;
+                blocks++;
+            }
+
+            // sized exactly, its estimate would sit just over the target and readers would discard it
+            BloomFilter filter = BloomFilter.withHeadroom(keys.size(), fpp);
+            for (String key : keys) filter.add(key);
+            filter.writeTo(index);
+
+            file.writeInt(blocks);
+            indexBytes.writeTo(file);
+            file.writeLong(offset);
+            file.writeInt(MAGIC);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Opens a snapshot for lookups. Only the block index is read; blocks are
+     * inflated on demand.
+     *
+     * @param path snapshot written by {@link #write}
+     * @return open snapshot
+     * @throws IOException if the file is missing or not a snapshot
+     */
+    public static CompressedSnapshot open(Path path) throws IOException {
+        ByteBuffer data;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (data.limit() < 2 * Integer.BYTES + Integer.BYTES + FOOTER
+                || data.getInt(0) != MAGIC
+                || data.getInt(data.limit() - Integer.BYTES) != MAGIC) {
+            throw new IOException("Not a dictionary snapshot: " + path);
+        }
+        int version = data.getInt(Integer.BYTES);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported snapshot version in " + path);
+        }
+
+        int indexStart = (int) data.getLong(data.limit() - FOOTER);
+        ByteBuffer indexBuf = data.duplicate().position(indexStart).limit(data.limit() - FOOTER).slice();
+        byte[] indexBytes = new byte[indexBuf.remaining()];
+        indexBuf.get(indexBytes);
+
+        DataInputStream index = new DataInputStream(new ByteArrayInputStream(indexBytes));
+        int blocks = index.readInt();
+        String[] firstKeys = new String[blocks];
+        long[] offsets = new long[blocks];
+        int[] compressed = new int[blocks];
+        int[] raw = new int[blocks];
+        int[] counts = new int[blocks];
+
+        for (int i = 0; i < blocks; i++) {
+            firstKeys[i] = index.readUTF();
+            offsets[i] = index.readLong();
+            compressed[i] = index.readInt();
+            raw[i] = index.readInt();
+            counts[i] = index.readInt();
+        }
+        BloomFilter filter = version >= 2 ? BloomFilter.readFrom(index) : null;
+        return new CompressedSnapshot(path.getFileName().toString(), data, firstKeys, offsets,
+                compressed, raw, counts, filter);
+    }
+
+    /**
+     * @return number of compressed blocks
+     */
+    public int blockCount() {
+        return firstKeys.length;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return total number of entries in the snapshot
+     */
+    @Override
+    public int size() {
+        int n = 0;
+        for (int c : entryCounts) n += c;
+        return n;
+    }
+
+    /**
+     * Looks up one word, inflating only the block that can contain it.
+     * Words rejected by the key filter inflate nothing.
+     *
+     * @param key normalized word
+     * @return the entry, or null if missing
+     * @throws IOException if the block is corrupt
+     */
+    public dictionaryEntry find(String key) throws IOException {
+        if (filter != null && !filter.mightContain(key)) return null;
+        int i = Arrays.binarySearch(firstKeys, key);
+        if (i < 0) i = -i - 2; // block whose first key precedes the word
+        if (i < 0) return null;
+
+        ByteBuffer block = inflate(i);
+        dictionaryEntry[] hit = new dictionaryEntry[1];
+        RecordCodec.read(block, false, r -> {
+            if (hit[0] == null && KeyNormalizer.normalize(r.word()).equals(key)) hit[0] = r.toEntry();
+        });
+        return hit[0];
+    }
+
+    @Override
+    public dictionaryEntry get(String key) {
+        try {
+            return find(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Checks the filter, then the sorted key array (built once, with every
+     * block inflated in parallel), so a membership test never inflates a
+     * block on its own.
+     */
+    @Override
+    public boolean contains(String key) {
+        if (filter != null && !filter.mightContain(key)) return false;
+        return Arrays.binarySearch(keys(), key) >= 0;
+    }
+
+    @Override
+    public BloomFilter keyFilter() {
+        return filter;
+    }
+
+    @Override
+    public Iterator<String> keys(String prefix) {
+        String[] keys = keys();
+        int from = Arrays.binarySearch(keys, prefix);
+        if (from < 0) from = -from - 1;
+        int to = from;
+        while (to < keys.length && keys[to].startsWith(prefix)) to++;
+        return Arrays.asList(keys).subList(from, to).iterator();
+    }
+
+    /**
+     * Decodes the normalized word of every entry once, inflating blocks in
+     * parallel, and keeps the sorted result.
+     */
+    private String[] keys() {
+        String[] keys = sortedKeys;
+        if (keys != null) return keys;
+
+        synchronized (this) {
+            if (sortedKeys != null) return sortedKeys;
+            String[][] perBlock = new String[blockCount()][];
+            IntStream.range(0, blockCount()).parallel().forEach(i -> {
+                List<String> words = new ArrayList<>(entryCounts[i]);
+                try {
+                    RecordCodec.read(inflate(i), false, r -> words.add(KeyNormalizer.normalize(r.word())));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                perBlock[i] = words.toArray(new String[0]);
+            });
+
+            keys = Arrays.stream(perBlock).flatMap(Arrays::stream).sorted().distinct().toArray(String[]::new);
+            sortedKeys = keys;
+            return keys;
+        }
+    }
+
+    /**
+     * Decodes every entry, inflating blocks in parallel. Entries are handed
+     * to the sink in file (sorted) order on the calling thread.
+     *
+     * @param sink receives each entry
+     * @throws IOException if a block is corrupt
+     */
+    public void readAll(Consumer<dictionaryEntry> sink) throws IOException {
+        List<List<dictionaryEntry>> decoded = new ArrayList<>(Collections.nCopies(blockCount(), null));
+        try {
+            IntStream.range(0, blockCount()).parallel().forEach(i -> {
+                List<dictionaryEntry> list = new ArrayList<>(entryCounts[i]);
+                try {
+                    RecordCodec.read(inflate(i), false, r -> list.add(r.toEntry()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                decoded.set(i, list); // each block sets its own slot; the list never resizes
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        for (List<dictionaryEntry> block : decoded) {
+            block.forEach(sink);
+        }
+    }
+
+    /**
+     * Inflates one block into a heap buffer of plain records.
+     */
+    private ByteBuffer inflate(int block) throws IOException {
+        ByteBuffer src = data.duplicate()
+                .position((int) offsets[block])
+                .limit((int) (offsets[block] + compressedSizes[block]))
+                .slice();
+        byte[] raw = new byte[rawSizes[block]];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(src);
+            int n = 0;
+            while (n < raw.length && !inflater.finished()) {
+                int got = inflater.inflate(raw, n, raw.length - n);
+                if (got == 0 && inflater.needsInput()) break;
+                n += got;
+            }
+            if (n != raw.length) throw new IOException("Truncated snapshot block " + block);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt snapshot block " + block, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    /**
+     * Compares a plain text dictionary file with its compressed snapshot:
+     * size, full load time and single lookup time.
+     *
+     * Usage: {@code CompressedSnapshot <dictionary.txt> [blockSize]}
+     *
+     * @param args text file and optional block size
+     * @throws IOException if either file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CompressedSnapshot <dictionary.txt> [blockSize]");
+            return;
+        }
+        Path text = Path.of(args[0]);
+        int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BLOCK_SIZE;
+        Path snap = text.resolveSibling(text.getFileName() + ".dicz");
+
+        DictionaryService service = new DictionaryService();
+        long t0 = System.nanoTime();
+        service.loadFromFile(text);
+        long textLoad = System.nanoTime() - t0;
+
+        service.saveSnapshot(snap, blockSize);
+
+        DictionaryService fromSnap = new DictionaryService();
+        t0 = System.nanoTime();
+        fromSnap.loadSnapshot(snap);
+        long snapLoad = System.nanoTime() - t0;
+
+        List<String> words = service.sort();
+        Random random = new Random(42);
+        int lookups = Math.min(1000, words.size());
+        CompressedSnapshot snapshot = open(snap);
+
+        long textLookup = 0;
+        long snapLookup = 0;
+        for (int i = 0; i < lookups; i++) {
+            String w = words.get(random.nextInt(words.size()));
+            t0 = System.nanoTime();
+            RecordCodec.find(text, w);
+            textLookup += System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            snapshot.find(w);
+            snapLookup += System.nanoTime() - t0;
+        }
+
+        long textSize = Files.size(text);
+        long snapSize = Files.size(snap);
+        System.out.printf("entries:        %d in %d blocks of %d%n", words.size(), snapshot.blockCount(), blockSize);
+        System.out.printf("size:           text %d bytes, snapshot %d bytes (ratio %.2f)%n",
+                textSize, snapSize, snapSize == 0 ? 0.0 : (double) textSize / snapSize);
+        System.out.printf("full load:      text %.1f ms, snapshot %.1f ms%n", textLoad / 1e6, snapLoad / 1e6);
+        if (lookups > 0) {
+            System.out.printf("single lookup:  text scan %.1f us, snapshot block %.1f us%n",
+                    textLookup / 1e3 / lookups, snapLookup / 1e3 / lookups);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package dictionary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures how much of a text corpus the dictionary covers.
+ *
+ * The corpus is memory-mapped in regions of a few megabytes, cut at
+ * whitespace so no word straddles two regions, and the regions are
+ * tokenized in parallel. Each worker thread counts tokens in its own
+ * {@link KeyTable}, decoding ASCII words straight from the mapped bytes into
+ * a reused char buffer, so a token that was seen before costs no allocation.
+ * The per-thread tables are merged once at the end, and every distinct word
+ * is then checked against a {@link DictionarySnapshot} once, not once per
+ * occurrence.
+ *
+ * A token is a run of letters (any script), with inner apostrophes kept
+ * ("don't") and a trailing possessive "'s" dropped. Runs that contain
+ * digits ("mp3", "1984") are skipped. Tokens are normalized with the same
+ * rules as dictionary keys.
+ *
+ * Usage: {@code CoverageAnalyzer <dictionary> <corpus> [top]}
+ */
+public class CoverageAnalyzer {
+
+    /** Bytes per region handed to one worker */
+    public static final int DEFAULT_REGION = 8 << 20;
+
+    /** Longest token counted; longer letter runs are not words */
+    private static final int MAX_TOKEN = 64;
+
+    /** Furthest a region end is moved forward looking for whitespace */
+    private static final int MAX_ALIGN = 1 << 16;
+
+    private CoverageAnalyzer() { }
+
+    /**
+     * A word and the number of times it occurs.
+     *
+     * @param word  normalized word
+     * @param count occurrences
+     */
+    public record WordCount(String word, int count) { }
+
+    /**
+     * Result of one analysis.
+     */
+    public static final class Report {
+        private final long tokens;
+        private final long hits;
+        private final int distinct;
+        private final List<WordCount> unknown;
+
+        private Report(long tokens, long hits, int distinct, List<WordCount> unknown) {
+            this.tokens = tokens;
+            this.hits = hits;
+            this.distinct = distinct;
+            this.unknown = unknown;
+        }
+
+        /** @return number of tokens in the corpus */
+        public long tokens() { return tokens; }
+
+        /** @return number of tokens found in the dictionary */
+        public long hits() { return hits; }
+
+        /** @return number of tokens not found in the dictionary */
+        public long misses() { return tokens - hits; }
+
+        /** @return number of distinct words in the corpus */
+        public int distinct() { return distinct; }
+
+        /** @return number of distinct words not found in the dictionary */
+        public int distinctUnknown() { return unknown.size(); }
+
+        /** @return share of tokens found in the dictionary, from 0 to 1 */
+        public double coverage() { return tokens == 0 ? 1.0 : (double) hits / tokens; }
+
+        /**
+         * @param n maximum number of words
+         * @return the most frequent unknown words, most frequent first
+         */
+        public List<WordCount> topUnknown(int n) {
+            return unknown.subList(0, Math.min(n, unknown.size()));
+        }
+    }
+
+    /**
+     * Tokenizes a corpus and checks every word against the dictionary.
+     *
+     * @param service       dictionary to check against
+     * @param corpus        UTF-8 text file of any size
+     * @param seedFrequency true to add the counts of known words to the
+     *                      service's search frequency statistics
+     * @return the coverage report
+     * @throws IOException if the corpus cannot be read
+     */
+    public static Report analyze(DictionaryService service, Path corpus, boolean seedFrequency) throws IOException {
+        DictionarySnapshot view = service.snapshot();
+        KeyTable counts = count(corpus, DEFAULT_REGION);
+
+        KeyTable known = new KeyTable(counts.size());
+        List<WordCount> unknown = new ArrayList<>();
+        long[] tokens = new long[2];
+        counts.forEach((word, n) -> {
+            tokens[0] += n;
+            if (view.containsKey(word)) {
+                tokens[1] += n;
+                known.put(word, n);
+            } else {
+                unknown.add(new WordCount(word, n));
+            }
+        });
+        unknown.sort(Comparator.comparingInt(WordCount::count).reversed().thenComparing(WordCount::word));
+
+        if (seedFrequency) service.addFrequency(known);
+        return new Report(tokens[0], tokens[1], counts.size(), unknown);
+    }
+
+    /**
+     * Counts every normalized token of a file, in parallel.
+     */
+    static KeyTable count(Path corpus, int regionSize) throws IOException {
+        Map<Thread, KeyTable> perThread = new ConcurrentHashMap<>();
+        try (FileChannel ch = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            List<long[]> regions = split(ch, regionSize);
+            try {
+                regions.parallelStream().forEach(r -> {
+                    KeyTable local = perThread.computeIfAbsent(Thread.currentThread(), t -> new KeyTable(1 << 14));
+                    try {
+                        tokenize(ch.map(FileChannel.MapMode.READ_ONLY, r[0], r[1] - r[0]), local);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        KeyTable merged = null;
+        for (KeyTable t : perThread.values()) {
+            if (merged == null || t.size() > merged.size()) {
+                if (merged != null) t.addAll(merged);
+                merged = t;
+            } else {
+                merged.addAll(t);
+            }
+        }
+        return merged != null ? merged : new KeyTable();
+    }
+
+    /**
+     * Cuts the file into regions of about {@code regionSize} bytes, each
+     * ending just after a whitespace byte (or at end of file).
+     *
+     * @return [start, end) pairs covering the whole file
+     */
+    private static List<long[]> split(FileChannel ch, int regionSize) throws IOException {
+        long size = ch.size();
+        List<long[]> regions = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + regionSize);
+            long limit = Math.min(size, end + MAX_ALIGN);
+            search:
+            while (end < limit) {
+                probe.clear();
+                int n = ch.read(probe, end);
+                if (n <= 0) break;
+                for (int i = 0; i < n && end < limit; i++, end++) {
+                    if (probe.get(i) >= 0 && probe.get(i) <= ' ') {
+                        end++;
+                        break search;
+                    }
+                }
+            }
+            regions.add(new long[] { start, end });
+            start = end;
+        }
+        return regions;
+    }
+
+    /**
+     * Counts the tokens of one region into a thread's table.
+     */
+    private static void tokenize(ByteBuffer buf, KeyTable counts) {
+        char[] word = new char[MAX_TOKEN + 2];
+        int len = 0;
+        boolean ascii = true;
+        boolean skip = false; // too long or contains digits
+
+        int limit = buf.limit();
+        int i = 0;
+        while (i < limit) {
+            int b = buf.get(i) & 0xFF;
+            int cp;
+            int n;
+            if (b < 0x80) {
+                cp = b;
+                n = 1;
+            } else {
+                // decode one UTF-8 sequence; malformed bytes count as separators
+                n = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 1;
+                cp = n == 1 || i + n > limit ? -1 : b & (0x3F >> (n - 1));
+                for (int k = 1; k < n && cp >= 0; k++) {
+                    int c = buf.get(i + k) & 0xFF;
+                    cp = (c & 0xC0) == 0x80 ? (cp << 6) | (c & 0x3F) : -1;
+                }
+                if (cp < 0) n = 1;
+                else if (cp == 0x2019) cp = '\''; // typographic apostrophe
+            }
+
+            boolean letter;
+            if (cp == '\'') {
+                letter = len > 0 && i + n < limit && isAsciiLetter(buf.get(i + n));
+            } else if (cp >= 0 && cp < 0x80) {
+                letter = isAsciiLetter((byte) cp);
+            } else {
+                letter = cp > 0 && (Character.isLetter(cp) || Character.getType(cp) == Character.NON_SPACING_MARK);
+            }
+
+            if (cp >= '0' && cp <= '9') {
+                skip = true;
+            } else if (letter) {
+                if (len + 2 > MAX_TOKEN) {
+                    skip = true;
+                } else if (cp < 0x80) {
+                    word[len++] = (char) (cp == '\'' ? cp : cp | 0x20);
+                } else {
+                    ascii = false;
+                    len += Character.toChars(cp, word, len);
+                }
+            } else if (len > 0 || skip) {
+                if (!skip) emit(word, len, ascii, counts);
+                len = 0;
+                ascii = true;
+                skip = false;
+            }
+            i += n;
+        }
+        if (len > 0 && !skip) emit(word, len, ascii, counts);
+    }
+
+    private static void emit(char[] word, int len, boolean ascii, KeyTable counts) {
+        if (len > 2 && word[len - 2] == '\'' && word[len - 1] == 's') len -= 2;
+        if (ascii) {
+            counts.increment(word, len, 1);
+        } else {
+            String key = KeyNormalizer.normalize(new String(word, 0, len));
+            if (!key.isEmpty()) counts.increment(key, 1);
+        }
+    }
+
+    private static boolean isAsciiLetter(byte b) {
+        int c = b | 0x20;
+        return c >= 'a' && c <= 'z';
+    }
+
+    /**
+     * Prints a coverage report for a corpus.
+     *
+     * @param args dictionary file, corpus file and optional number of
+     *             unknown words to list
+     * @throws IOException if either file cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CoverageAnalyzer <dictionary> <corpus> [top]");
+            return;
+        }
+        int top = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+        DictionaryService service = new DictionaryService();
+        service.mountFile(Path.of(args[0]));
+
+        long t0 = System.nanoTime();
+        Report report = analyze(service, Path.of(args[1]), false);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        System.out.printf("tokens:    %d (%d distinct)%n", report.tokens(), report.distinct());
+        System.out.printf("hits:      %d%n", report.hits());
+        System.out.printf("misses:    %d (%d distinct)%n", report.misses(), report.distinctUnknown());
+        System.out.printf("coverage:  %.2f%%%n", report.coverage() * 100);
+        System.out.printf("time:      %d ms%n", ms);
+        System.out.println();
+        System.out.println("most frequent unknown words:");
+        for (WordCount wc : report.topUnknown(top)) {
+            System.out.printf("%10d  %s%n", wc.count(), wc.word());
+        }
+    }
+}
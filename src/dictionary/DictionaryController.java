@@ -17,12 +17,33 @@ import java.util.List;
  */
 public class DictionaryController {
 
+    /** Number of suggestions shown under the search box */
+    private static final int COMPLETIONS = 8;
+
+    /** Shortest word listed by a "+letters" filter */
+    private static final int MIN_BUILT_WORD = 2;
+
+    /** Set -Ddictionary.filterStats=true to print the key filter's statistics on each miss */
+    private static final boolean FILTER_STATS = Boolean.getBoolean("dictionary.filterStats");
+
     /** Reference to the UI layer */
     private final DictionaryPanel view;
 
     /** Reference to the business logic layer */
     private final DictionaryService service;
 
+    /** True while the dictionary is still streaming in at startup */
+    private volatile boolean loading;
+
+    /** Why the startup load failed, or null; nothing is saved after a failure */
+    private volatile String loadFailure;
+
+    /** Words indexed so far by a lazy background load */
+    private int loadedKeys;
+
+    /** True when the window mirrors a primary; changes are refused */
+    private boolean readOnly;
+
     /**
      * Constructs the controller and initializes event wiring.
      *
@@ -34,8 +55,16 @@ public class DictionaryController {
         this.service = service;
 
         wireEvents();
-        refreshWordList();
-        refreshTop5();
+        // the list holds keys; show each word as it was entered ("Café", not "cafe")
+        view.showWordsAs(key -> {
+            dictionaryEntry e = service.untraced(() -> service.snapshot().resolve(key));
+            return e != null ? e.getWord() : key;
+        });
+        service.untraced(() -> {
+            refreshWordList();
+            refreshTop5();
+            return null;
+        });
         view.setEditing(false);
     }
 
@@ -71,14 +100,22 @@ public class DictionaryController {
             if (!e.getValueIsAdjusting()) {
                 String selected = view.getSelectedWord();
                 if (selected != null) {
-                    service.find(selected).ifPresent(entry -> {
+                    lookup(selected, found -> found.ifPresent(entry -> {
                         view.setDetails(entry);
                         refreshTop5();
-                    });
+                    }));
                 }
             }
         });
 
+        // Autocomplete under the search box
+        view.onSearchTextChanged(new javax.swing.event.DocumentListener() {
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { suggest(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { suggest(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { suggest(); }
+        });
+        view.onCompletionChosen(word -> handleFind());
+
         // Prefix filter listener
         view.onFilterChanged(new javax.swing.event.DocumentListener() {
             public void insertUpdate(javax.swing.event.DocumentEvent e) { filter(); }
@@ -87,6 +124,141 @@ public class DictionaryController {
         });
     }
 
+    /**
+     * Switches the loading indicator on or off. When loading ends the word
+     * list is rebuilt once in sorted order.
+     *
+     * @param loading true while a background load is running
+     */
+    public void setLoading(boolean loading) {
+        this.loading = loading;
+        if (loading) {
+            view.setStatus("Loading...");
+        } else {
+            loadedKeys = 0;
+            view.setStatus("");
+            view.setTotalCount(service.untraced(() -> {
+                filter();
+                return service.count();
+            }));
+        }
+    }
+
+    /**
+     * Returns whether the dictionary is still loading.
+     *
+     * @return true while a background load is running
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Reports a startup load that failed. Saving from then on would replace
+     * the dictionary on disk with this session's edits alone, so
+     * {@link #canSave()} stays false and the user is told.
+     *
+     * @param message reason the load failed
+     */
+    public void onLoadFailed(String message) {
+        loadFailure = message;
+        view.setStatus("Load failed: changes will not be saved");
+        view.showError("The dictionary could not be loaded: " + message
+                + "\nChanges made in this session will not be saved.");
+    }
+
+    /**
+     * Returns why the startup load failed.
+     *
+     * @return the failure message, or null if the load did not fail
+     */
+    public String getLoadFailure() {
+        return loadFailure;
+    }
+
+    /**
+     * Returns whether the dictionary may be saved: not while it is still
+     * loading, and never after the load failed.
+     *
+     * @return true if a save would write the whole dictionary
+     */
+    public boolean canSave() {
+        return !loading && loadFailure == null;
+    }
+
+    /**
+     * Makes the window read-only, for a replica (see {@link ReplicaClient}):
+     * its content comes from the primary, and local changes would be
+     * overwritten by it and never saved.
+     *
+     * @param readOnly true to refuse adds, edits, deletes and imports
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        view.setChangesEnabled(!readOnly);
+        if (readOnly) view.setEditing(false);
+    }
+
+    /**
+     * Tells the user that changes are made on the primary, in read-only mode.
+     *
+     * @return true if the change must not be made
+     */
+    private boolean refuseChange() {
+        if (!readOnly) return false;
+        view.showError("This window is a read-only replica. Make changes on the primary.");
+        return true;
+    }
+
+    /**
+     * Shows the progress of a replica (see {@link ReplicaClient}) and
+     * refreshes the word list with the changes applied so far.
+     *
+     * @param status progress line from the replica
+     */
+    public void onReplicated(String status) {
+        view.setTotalCount(service.untraced(() -> {
+            filter();
+            return service.count();
+        }));
+        view.setStatus(status);
+    }
+
+    /**
+     * Applies one batch of entries from the background loader.
+     * Words are appended to the list while no filter is active.
+     *
+     * @param batch entries read from the dictionary file
+     */
+    public void onEntriesLoaded(List<dictionaryEntry> batch) {
+        service.addLoaded(batch);
+
+        if (view.getFilterText().isBlank()) {
+            List<String> words = new java.util.ArrayList<>(batch.size());
+            for (dictionaryEntry e : batch) words.add(e.getKey());
+            view.appendWords(words);
+        }
+        int count = service.untraced(service::count);
+        view.setTotalCount(count);
+        view.setStatus("Loading... " + count);
+    }
+
+    /**
+     * Applies one batch of words from a lazy background load. The entries
+     * themselves are attached to the service when loading finishes; until
+     * then the total is the words indexed plus those in the user layer, and
+     * it is recounted exactly once the store is mounted.
+     *
+     * @param words normalized words read from the dictionary file
+     */
+    public void onKeysLoaded(List<String> words) {
+        loadedKeys += words.size();
+        if (view.getFilterText().isBlank()) view.appendWords(words);
+        // count() would also include the mounted layers, which the indexed words may repeat
+        view.setTotalCount(loadedKeys + service.userCount());
+        view.setStatus("Loading... " + loadedKeys);
+    }
+
     /**
      * Refreshes the full dictionary word list in sorted order.
      */
@@ -105,26 +277,86 @@ public class DictionaryController {
 
     /**
      * Handles search operation for a specific word.
-     * Displays word details if found.
+     * Displays word details if found, otherwise suggests words that sound
+     * like it.
      */
     private void handleFind() {
+        view.hideCompletions();
         String word = view.getSearchWord().trim();
         if (word.isEmpty()) return;
 
-        service.find(word).ifPresentOrElse(
+        lookup(word, found -> found.ifPresentOrElse(
                 entry -> {
                     view.setDetails(entry);
                     view.selectWordInList(entry.getWord());
                     refreshTop5();
                 },
-                () -> view.showError("Word not found: " + word)
-        );
+                () -> {
+                    // misses are what the key filter is for; report how it is doing
+                    if (FILTER_STATS) System.out.println(service.filterReport());
+                    view.showError(notFoundMessage(word));
+                }
+        ));
+    }
+
+    /**
+     * Looks a word up and hands the result over on the EDT. While the
+     * dictionary is loading a miss may scan the whole file, so the lookup
+     * then runs on a worker thread instead of freezing the window.
+     *
+     * @param word   word to look up
+     * @param result receives the entry, if found
+     */
+    private void lookup(String word, java.util.function.Consumer<java.util.Optional<dictionaryEntry>> result) {
+        if (!service.isLoading()) {
+            result.accept(service.find(word));
+            return;
+        }
+        new SwingWorker<java.util.Optional<dictionaryEntry>, Void>() {
+            @Override
+            protected java.util.Optional<dictionaryEntry> doInBackground() {
+                return service.find(word);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    result.accept(get());
+                } catch (Exception e) {
+                    view.showError("Lookup failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Shows the most searched words starting with the text typed in the
+     * search box. Runs on every keystroke; the service answers in time
+     * proportional to the prefix and the number of suggestions.
+     */
+    private void suggest() {
+        String text = view.getSearchWord().trim();
+        view.showCompletions(text.isEmpty() ? List.of() : service.complete(text, COMPLETIONS));
+    }
+
+    /**
+     * Builds the "not found" message, with up to 5 sound-alike suggestions.
+     *
+     * @param word the word that was not found
+     * @return message text
+     */
+    private String notFoundMessage(String word) {
+        List<String> similar = service.soundsLike(word);
+        if (similar.isEmpty()) return "Word not found: " + word;
+        return "Word not found: " + word + "\nSounds like: "
+                + String.join(", ", similar.subList(0, Math.min(5, similar.size())));
     }
 
     /**
      * Clears details and enables editing mode for adding a new word.
      */
     private void handleAdd(){
+        if (refuseChange()) return;
         view.clearDetails();
         view.setEditing(true);
     }
@@ -133,6 +365,7 @@ public class DictionaryController {
      * Handles word deletion with confirmation dialog.
      */
     private void handleRemove(){
+        if (refuseChange()) return;
         String word = view.getSelectedWord();
         if (word == null || word.isBlank()) {
             word = view.getSearchWord().trim();
@@ -184,6 +417,7 @@ public class DictionaryController {
      * Saves a new or edited dictionary entry.
      */
     private void handleSave(){
+        if (refuseChange()) return;
         dictionaryEntry entry = view.getDetailsFromFields();
 
         if (entry.getWord() == null || entry.getWord().isBlank()) {
@@ -201,6 +435,7 @@ public class DictionaryController {
      * Enables editing mode for an existing word.
      */
     private void handleEdit(){
+        if (refuseChange()) return;
         if (view.getSelectedWord() == null && view.getSearchWord().isBlank()) {
             view.showError("Select a word first.");
             return;
@@ -209,10 +444,23 @@ public class DictionaryController {
     }
 
     /**
-     * Applies prefix filtering to the dictionary word list.
+     * Applies filtering to the dictionary word list: an anagram search when
+     * the text starts with '=' (exact anagrams) or '+' (words built from
+     * the letters), a wildcard search when it contains '*' or '?', or
+     * prefix filtering.
      */
     private void filter() {
-        view.setSearchWordList(service.searchPrefix(view.getFilterText().trim()));
+        String text = view.getFilterText().trim();
+        if (AnagramIndex.isQuery(text)) {
+            String letters = text.substring(1);
+            view.setSearchWordList(text.charAt(0) == AnagramIndex.EXACT
+                    ? service.anagrams(letters)
+                    : service.buildableWords(letters, MIN_BUILT_WORD));
+        } else if (PatternIndex.isPattern(text)) {
+            view.setSearchWordList(service.searchPattern(text));
+        } else {
+            view.setSearchWordList(service.searchPrefix(text));
+        }
     }
 
     /**
@@ -224,14 +472,14 @@ public class DictionaryController {
         String word = view.getTopWordFromButton(index);
         if (word == null) return;
 
-        service.find(word).ifPresentOrElse(
+        lookup(word, found -> found.ifPresentOrElse(
                 entry -> {
                     view.setDetails(entry);
                     view.selectWordInList(entry.getWord());
                     refreshTop5();
                 },
                 () -> view.showError("Word not found: " + word)
-        );
+        ));
     }
 
     /**
@@ -246,6 +494,7 @@ public class DictionaryController {
      * Opens file chooser and imports dictionary entries.
      */
     private void handleImport() {
+        if (refuseChange()) return;
         JFileChooser chooser = new JFileChooser();
         int result = chooser.showOpenDialog(view.getRoot());
 
@@ -260,62 +509,33 @@ public class DictionaryController {
 
     /**
      * Imports dictionary entries from a formatted text file.
+     * The file is validated first; the user sees a summary and decides
+     * whether changed words replace the existing entries.
      *
      * @param file the file to import from
      */
     private void importFromFile(java.io.File file) {
+        ImportPlan plan;
         try {
-            String content = java.nio.file.Files.readString(
-                    file.toPath(),
-                    java.nio.charset.StandardCharsets.UTF_8
-            );
-
-            content = content.replace("\r", "\n");
-            StringBuilder record = new StringBuilder();
-
-            for (String chunk : content.split("\\R")) {
-                String line = chunk.trim();
-                if (line.isEmpty()) continue;
-
-                if (record.length() > 0) record.append(" ");
-                record.append(line);
-
-                while (countPipes(record) >= 4) {
-                    String one = record.toString();
-                    String[] parts = one.split("\\|", 5);
-                    if (parts.length < 5) break;
-
-                    String word = parts[0].trim();
-                    String pron = parts[1].trim();
-                    String def  = parts[2].trim();
-                    String ex   = parts[3].trim();
-                    String synAndRest = parts[4].trim();
-
-                    List<String> syns =
-                            java.util.Arrays.asList(synAndRest.split("\\s*,\\s*"));
-
-                    service.addOrUpdate(new dictionaryEntry(word, pron, def, ex, syns));
-                    record.setLength(0);
-                }
-            }
-
+            plan = service.planImport(file.toPath());
         } catch (Exception ex) {
             view.showError("Failed to import file: " + ex.getMessage());
+            return;
         }
-    }
 
-    /**
-     * Counts the number of '|' characters in a StringBuilder.
-     *
-     * @param sb string builder
-     * @return number of pipe characters
-     */
-    private int countPipes(StringBuilder sb) {
-        int count = 0;
-        for (int i = 0; i < sb.length(); i++) {
-            if (sb.charAt(i) == '|') count++;
+        boolean replace = false;
+        if (plan.conflicts() > 0) {
+            int choice = view.choose(plan.summary() + "\n" + plan.conflicts()
+                            + " word(s) differ from the existing entries.",
+                    "Import", "Replace existing", "Keep existing", "Cancel");
+            if (choice != 0 && choice != 1) return;
+            replace = choice == 0;
+        }
+
+        int written = service.applyImport(plan, replace);
+        if (plan.conflicts() == 0) {
+            view.showInfo(plan.summary() + "\n" + written + " entries imported.");
         }
-        return count;
     }
 
     /**
@@ -329,40 +549,10 @@ public class DictionaryController {
             file = new java.io.File(file.getParentFile(), file.getName() + ".txt");
         }
 
-        try (java.io.PrintWriter out =
-                     new java.io.PrintWriter(file, java.nio.charset.StandardCharsets.UTF_8)) {
-
-            for (dictionaryEntry entry : service.getAllEntriesSorted()) {
-                out.println(toExportLine(entry));
-            }
-
+        try {
+            service.saveToFile(file.toPath());
         } catch (Exception ex) {
             view.showError("Export failed: " + ex.getMessage());
         }
     }
-
-    /**
-     * Converts a dictionary entry to export file format.
-     */
-    private String toExportLine(dictionaryEntry e) {
-        String word = safe(e.getWord());
-        String pron = safe(e.getPronounce());
-        String def  = safe(e.getDefinition());
-        String ex   = safe(e.getExample());
-        String syns = String.join(", ", e.getSyn()).replace("\n", " ").replace("\r", " ");
-        syns = syns.replace("|", "/");
-
-        return word + "|" + pron + "|" + def + "|" + ex + "|" + syns;
-    }
-
-    /**
-     * Sanitizes string data before file export.
-     */
-    private String safe(String s) {
-        if (s == null) return "";
-        return s.replace("\n", " ")
-                .replace("\r", " ")
-                .replace("|", "/")
-                .trim();
-    }
-}
\ No newline at end of file
+}
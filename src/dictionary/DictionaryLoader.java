@@ -0,0 +1,128 @@
+package dictionary;
+
+import javax.swing.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the dictionary file on a background thread after the window is shown.
+ *
+ * Records are parsed off the EDT and published in batches; each batch is
+ * handed to the controller on the EDT so the service and the word list fill
+ * in progressively. While loading, the service answers lookups that miss
+ * directly from the file (see {@link DictionaryService#beginLoading}).
+ *
+ * In lazy mode only the words are indexed (see {@link LazyEntryStore}); the
+ * word batches feed the list and the finished store is mounted as a
+ * read-only layer of the service at the end.
+ *
+ * The source is either a single record file or a segment directory written
+ * by {@link DictionaryService#saveSegments}.
+ */
+public class DictionaryLoader extends SwingWorker<Integer, List<?>> {
+
+    /** Number of entries handed to the EDT at a time */
+    private static final int BATCH_SIZE = 2000;
+
+    private final Path file;
+    private final DictionaryService service;
+    private final DictionaryController controller;
+    private final long startNanos;
+    private final boolean lazy;
+    private DictionarySource store;
+
+    /**
+     * Creates a loader for one file.
+     *
+     * @param file       dictionary file or segment directory to load
+     * @param service    service receiving the entries (used for the loading state)
+     * @param controller controller that applies each batch on the EDT
+     * @param startNanos application start time, used for the timing log
+     * @param lazy       true to index words only and decode entries on demand
+     */
+    public DictionaryLoader(Path file, DictionaryService service,
+                            DictionaryController controller, long startNanos, boolean lazy) {
+        this.file = file;
+        this.service = service;
+        this.controller = controller;
+        this.startNanos = startNanos;
+        this.lazy = lazy;
+    }
+
+    /**
+     * Marks the service as loading and starts the background worker.
+     * Must be called on the EDT.
+     */
+    public void start() {
+        service.beginLoading(file);
+        controller.setLoading(true);
+        execute();
+    }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        boolean segmented = SegmentedStore.exists(file);
+        if (!segmented && !Files.isRegularFile(file)) return 0;
+
+        if (lazy) {
+            store = segmented ? SegmentedStore.open(file, this::publish) : LazyEntryStore.open(file, this::publish);
+            return store.size();
+        }
+
+        int[] total = new int[1];
+        List<dictionaryEntry> batch = new ArrayList<>(BATCH_SIZE);
+
+        java.util.function.Consumer<RecordCodec.Record> sink = r -> {
+            if (isCancelled()) return;
+            batch.add(r.toEntry());
+            if (batch.size() == BATCH_SIZE) {
+                publish(new ArrayList<>(batch));
+                total[0] += batch.size();
+                batch.clear();
+            }
+        };
+        if (segmented) {
+            SegmentedStore.readAll(file, sink);
+        } else {
+            RecordCodec.readFile(file, false, sink);
+        }
+
+        if (!batch.isEmpty()) {
+            publish(new ArrayList<>(batch));
+            total[0] += batch.size();
+        }
+        return total[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void process(List<List<?>> batches) {
+        for (List<?> batch : batches) {
+            if (lazy) {
+                controller.onKeysLoaded((List<String>) batch);
+            } else {
+                controller.onEntriesLoaded((List<dictionaryEntry>) batch);
+            }
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (store != null && !isCancelled()) service.mount(store);
+        service.finishLoading();
+        controller.setLoading(false);
+
+        long ms = (System.nanoTime() - startNanos) / 1_000_000;
+        try {
+            System.out.println("Fully loaded " + get() + " entries after " + ms + " ms");
+        } catch (java.util.concurrent.CancellationException e) {
+            System.out.println("Load cancelled after " + ms + " ms");
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Load failed: " + cause.getMessage());
+            controller.onLoadFailed(String.valueOf(cause.getMessage()));
+        }
+    }
+}
@@ -5,6 +5,8 @@ import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionListener;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * View layer for the Dictionary application (Swing UI).
@@ -71,11 +73,17 @@ public class DictionaryPanel {
     private JButton btn_freq3;
     private JButton btn_freq1;
     private JLabel count;
+    private JLabel status;
 
     // Import/Export Buttons
     private JButton btn_export;
     private JButton btn_import;
 
+    // Autocomplete dropdown under the search box (built in code, not in the form)
+    private JPopupMenu completionPopup;
+    private JList<String> completionList;
+    private Consumer<String> completionChosen = w -> { };
+
     /**
      * Returns the root panel so it can be mounted into a JFrame.
      *
@@ -219,6 +227,25 @@ public class DictionaryPanel {
         filter.getDocument().addDocumentListener(l);
     }
 
+    /**
+     * Attaches a listener for changes in the search box, fired on every
+     * keystroke.
+     *
+     * @param l DocumentListener callback
+     */
+    public void onSearchTextChanged(DocumentListener l) {
+        searchWordTextField.getDocument().addDocumentListener(l);
+    }
+
+    /**
+     * Sets the callback run when a suggestion is picked from the
+     * autocomplete dropdown (click, or arrow keys then Enter). The search
+     * box already holds the word when it runs.
+     *
+     * @param l receives the chosen word
+     */
+    public void onCompletionChosen(Consumer<String> l) { completionChosen = l; }
+
     // ----------------------------
     // Getters (inputs/state)
     // ----------------------------
@@ -255,6 +282,13 @@ public class DictionaryPanel {
      */
     public void setTotalCount(int n) { count.setText("Total Words: " + n); }
 
+    /**
+     * Updates the status text shown next to the import/export buttons.
+     *
+     * @param text status message (empty to clear)
+     */
+    public void setStatus(String text) { status.setText(text); }
+
     /**
      * Replaces the JList contents with the provided words.
      *
@@ -268,15 +302,30 @@ public class DictionaryPanel {
         lstWords.setModel(model);
     }
 
+    /**
+     * Appends words to the end of the current JList contents.
+     * Used while the dictionary is still streaming in at startup.
+     *
+     * @param words words to append
+     */
+    public void appendWords(List<String> words){
+        if (lstWords.getModel() instanceof DefaultListModel<String> model) {
+            model.addAll(words);
+        } else {
+            setSearchWordList(words);
+        }
+    }
+
     /**
      * Selects a word in the JList if it exists.
      *
      * @param word word to select
      */
     public void selectWordInList(String word){
+        String key = KeyNormalizer.normalize(word);
         ListModel<String> model = lstWords.getModel();
         for(int i = 0; i < model.getSize(); i++){
-            if(word.equalsIgnoreCase(model.getElementAt(i))){
+            if(key.equals(model.getElementAt(i))){
                 lstWords.setSelectedIndex(i);
                 lstWords.ensureIndexIsVisible(i);
                 return;
@@ -284,6 +333,113 @@ public class DictionaryPanel {
         }
     }
 
+    /**
+     * Sets how the list displays its words. The list holds normalized keys;
+     * each visible row is shown with the spelling returned for its key.
+     * Rows have a fixed size so only the visible ones are rendered, even in
+     * a list of every word.
+     *
+     * @param spelling maps a normalized key to the word to display
+     */
+    public void showWordsAs(UnaryOperator<String> spelling) {
+        lstWords.setPrototypeCellValue("abcdefghijklmnopqrstuvwxyz");
+        lstWords.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public java.awt.Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                                   boolean selected, boolean focused) {
+                return super.getListCellRendererComponent(list, spelling.apply((String) value), index,
+                        selected, focused);
+            }
+        });
+    }
+
+    /**
+     * Shows autocomplete suggestions in a dropdown under the search box, or
+     * hides it when there are none. Typing focus stays in the search box.
+     *
+     * @param words suggestions, best first
+     */
+    public void showCompletions(List<String> words) {
+        if (words.isEmpty() || !searchWordTextField.isShowing()) {
+            hideCompletions();
+            return;
+        }
+        JPopupMenu popup = completionPopup();
+        DefaultListModel<String> model = new DefaultListModel<>();
+        model.addAll(words);
+        completionList.setModel(model);
+        completionList.setVisibleRowCount(words.size());
+        popup.setPopupSize(searchWordTextField.getWidth(), popup.getPreferredSize().height);
+        if (popup.isVisible()) {
+            popup.pack();
+        } else {
+            popup.show(searchWordTextField, 0, searchWordTextField.getHeight());
+        }
+    }
+
+    /**
+     * Hides the autocomplete dropdown.
+     */
+    public void hideCompletions() {
+        if (completionPopup != null) completionPopup.setVisible(false);
+    }
+
+    /**
+     * Creates the dropdown on first use and wires its mouse and keyboard
+     * handling: Up/Down move through the suggestions, Enter picks the
+     * selected one, Escape closes the list.
+     */
+    private JPopupMenu completionPopup() {
+        if (completionPopup != null) return completionPopup;
+
+        completionList = new JList<>();
+        completionList.setFocusable(false);
+        completionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        completionList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int i = completionList.locationToIndex(e.getPoint());
+                if (i >= 0) chooseCompletion(completionList.getModel().getElementAt(i));
+            }
+        });
+
+        completionPopup = new JPopupMenu();
+        completionPopup.setFocusable(false);
+        completionPopup.setLayout(new java.awt.BorderLayout());
+        completionPopup.add(completionList);
+
+        searchWordTextField.addKeyListener(new java.awt.event.KeyAdapter() {
+            @Override
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                if (!completionPopup.isVisible()) return;
+                int size = completionList.getModel().getSize();
+                int i = completionList.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case java.awt.event.KeyEvent.VK_DOWN -> completionList.setSelectedIndex(Math.min(size - 1, i + 1));
+                    case java.awt.event.KeyEvent.VK_UP -> completionList.setSelectedIndex(Math.max(0, i - 1));
+                    case java.awt.event.KeyEvent.VK_ESCAPE -> hideCompletions();
+                    case java.awt.event.KeyEvent.VK_ENTER -> {
+                        if (i < 0) return;
+                        chooseCompletion(completionList.getSelectedValue());
+                    }
+                    default -> { return; }
+                }
+                e.consume();
+            }
+        });
+        searchWordTextField.addFocusListener(new java.awt.event.FocusAdapter() {
+            @Override
+            public void focusLost(java.awt.event.FocusEvent e) { hideCompletions(); }
+        });
+        return completionPopup;
+    }
+
+    private void chooseCompletion(String word) {
+        searchWordTextField.setText(word);
+        hideCompletions(); // after setText, whose change event may have reopened it
+        completionChosen.accept(word);
+    }
+
     /**
      * Populates the detail fields with the values from a dictionary entry.
      *
@@ -374,6 +530,20 @@ public class DictionaryPanel {
         synTextArea.setEditable(editing);
     }
 
+    /**
+     * Enables or disables the buttons that change the dictionary.
+     *
+     * @param enabled false to leave only lookups: add, edit, delete, save
+     *                and import are disabled
+     */
+    public void setChangesEnabled(boolean enabled) {
+        btn_add.setEnabled(enabled);
+        btn_edit.setEnabled(enabled);
+        btn_delete.setEnabled(enabled);
+        btn_save.setEnabled(enabled);
+        btn_import.setEnabled(enabled);
+    }
+
     // ----------------------------
     // Dialog helpers
     // ----------------------------
@@ -398,6 +568,28 @@ public class DictionaryPanel {
         JOptionPane.showMessageDialog(app, message, "Error", JOptionPane.ERROR_MESSAGE);
     }
 
+    /**
+     * Displays an information dialog.
+     *
+     * @param message text to show
+     */
+    public void showInfo(String message) {
+        JOptionPane.showMessageDialog(app, message, "Information", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Asks the user to pick one of several actions.
+     *
+     * @param message question text
+     * @param title   dialog title
+     * @param options button labels
+     * @return index of the chosen option, or -1 if the dialog was closed
+     */
+    public int choose(String message, String title, String... options) {
+        return JOptionPane.showOptionDialog(app, message, title, JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+    }
+
     /**
      * Prompts the user to confirm application exit.
      *
@@ -3,15 +3,70 @@ package dictionary;
 import java.util.*;
 
 public class DictionaryService {
-    private final Map<String, dictionaryEntry> Dictionary = new HashMap<>();
-    private final Map<String, Integer> frequency = new HashMap<>();
+    /** Writable layer holding words added, edited or deleted in this session */
+    private final MemorySource user = new MemorySource("user");
+    /** Mounted layers, highest priority first; replaced (never mutated) on mount/unmount */
+    private volatile List<DictionarySource> layers = List.of(user);
+    /** Search counts per key; guarded by its own monitor */
+    private final KeyTable frequency = new KeyTable();
+    /** Most searched words per prefix; updated with {@link #frequency}, under its monitor */
+    private final CompletionIndex completions = new CompletionIndex();
+    /** Wildcard search indexes; built on first use, then kept in step with writes */
+    private PatternIndex patterns;
+    /** "Sounds like" index; built on first use, then kept in step with writes */
+    private PhoneticIndex phonetics;
+    /** Anagram index; built on first use, then kept in step with writes */
+    private AnagramIndex anagrams;
+    /** Keys added, edited or deleted since the last segment save; guarded by {@link #dirtyLock} */
+    private Set<String> dirty = new HashSet<>();
+    private final Object dirtyLock = new Object();
+    /** Called after each change; see {@link #onChange} */
+    private final List<java.util.function.Consumer<String>> changeListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+    /** Serializes segment saves */
+    private final Object saveLock = new Object();
+    /** Layer list {@link #belowTopCount} was counted for; guarded by this */
+    private List<DictionarySource> countedLayers;
+    /** Visible words below the user layer, for {@link #count()}; guarded by this */
+    private int belowTopCount;
+    /**
+     * Bloom filter over the keys of every layer, consulted before a lookup
+     * walks more than one layer; built on first use, then kept in step with
+     * writes. Written under this object's monitor.
+     */
+    private volatile BloomFilter keyFilter;
+    /** Target false positive rate of {@link #keyFilter} */
+    private volatile double filterFpp = Double.parseDouble(
+            System.getProperty("dictionary.bloomFpp", String.valueOf(BloomFilter.DEFAULT_FPP)));
+    /** Deletes since {@link #keyFilter} was built; their bits are stale. Guarded by this */
+    private long filterStale;
+    /** Lookups rejected by the filter, and lookups it passed that then missed */
+    private final java.util.concurrent.atomic.LongAdder filterRejected = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder filterPassedMisses = new java.util.concurrent.atomic.LongAdder();
+    /** File consulted on a miss while it is still being loaded, or null */
+    private volatile java.nio.file.Path loadingFrom;
+    /** Words already scanned for in {@link #loadingFrom} and not found */
+    private final Set<String> fileMisses = java.util.concurrent.ConcurrentHashMap.newKeySet();
+    /** True while a background load is in progress; deletes then leave a tombstone */
+    private volatile boolean loading;
     /**
      * Adds or Updates an Entry
      * @param entry : The dictionary we want to edit
      */
     public void addOrUpdate(dictionaryEntry entry){
-        String word = entry.getWord().toLowerCase();
-        Dictionary.put(word, entry);
+        store(entry);
+        markDirty(entry.getKey());
+    }
+    /**
+     * Adds a batch of Entries read by a background load. Words that are
+     * already known (edited, deleted or looked up while loading) are kept.
+     * @param entries : the entries to add
+     */
+    public void addLoaded(Collection<dictionaryEntry> entries){
+        List<DictionarySource> current = layers;
+        for (dictionaryEntry entry : entries) {
+            String key = entry.getKey();
+            if (DictionarySnapshot.locate(current, key) < 0) store(entry);
+        }
     }
     /**
      *
@@ -20,11 +75,37 @@ public class DictionaryService {
      */
     public Optional<dictionaryEntry> find(String word){
         if (word == null) return Optional.empty();
-        String key = word.toLowerCase();
+        String key = KeyNormalizer.normalize(word);
+        List<DictionarySource> current = layers;
+        java.nio.file.Path pending = loadingFrom;
 
-        dictionaryEntry entry = Dictionary.get(key);
+        // a missing word is rejected here instead of probing every layer
+        BloomFilter guard = pending == null && current.size() > 1 ? lookupFilter() : null;
+        if (guard != null && !guard.mightContain(key)) {
+            filterRejected.increment();
+            return Optional.empty();
+        }
+
+        dictionaryEntry entry = DictionarySnapshot.resolve(current, key, false);
+        if (entry == null && pending != null && DictionarySnapshot.locate(current, key) < 0
+                && !fileMisses.contains(key)) {
+            entry = findInFile(pending, key);
+            if (entry == null) {
+                fileMisses.add(key); // the file does not change while it loads
+            } else {
+                synchronized (this) {
+                    // deleted or edited during the scan: the newer state wins
+                    if (DictionarySnapshot.locate(layers, key) < 0) store(entry);
+                    else entry = DictionarySnapshot.resolve(layers, key, false);
+                }
+            }
+        }
+        if (entry == null && guard != null) filterPassedMisses.increment();
         if (entry != null) {
-            frequency.put(key, frequency.getOrDefault(key, 0) + 1);
+            synchronized (frequency) {
+                frequency.increment(key, 1);
+                completions.increment(key, 1);
+            }
         }
 
         return Optional.ofNullable(entry);
@@ -36,19 +117,37 @@ public class DictionaryService {
      */
     public boolean delete(String word){
         if (word == null) return false;
-        String key = word.toLowerCase();
-        dictionaryEntry removed = Dictionary.remove(key);
-        frequency.remove(key);
-        return removed != null;
+        String key = KeyNormalizer.normalize(word);
+        boolean existed = erase(key);
+        markDirty(key);
+        return existed;
+    }
+
+    /**
+     * Removes a word from every layer's view and from the indexes without
+     * marking it as changed.
+     * @return boolean: True if the word was visible
+     */
+    private boolean erase(String key) {
+        List<DictionarySource> current = layers;
+        boolean existed = DictionarySnapshot.resolve(current, key, true) != null;
+
+        // hide the word from read-only layers below instead of touching them;
+        // while loading, also from the layer or batches still to come
+        user.remove(key, loading || DictionarySnapshot.containedBelowTop(current, key));
+        synchronized (frequency) {
+            frequency.remove(key);
+            completions.remove(key);
+        }
+        indexRemoved(key);
+        return existed;
     }
     /**
      *
      * @return List: a list of the sorted words
      */
     public List<String> sort(){
-        List<String> words = new ArrayList<>(Dictionary.keySet());
-        Collections.sort(words);
-        return words;
+        return snapshot().sort();
     }
     /**
      *
@@ -56,98 +155,685 @@ public class DictionaryService {
      * @return list: Contains the words with the input prefix
      */
     public List<String> searchPrefix(String prefix){
-        String lower = prefix.toLowerCase();
-        List<String> results = new ArrayList<>();
-        for(String word : Dictionary.keySet()){
-            if(word.startsWith(lower)){
-                results.add(word);
-            }
-        }
-        Collections.sort(results);
-        return results;
+        return snapshot().searchPrefix(prefix);
     }
     /**
      *
      * @return count: number of items in the dictionary
      */
     public int count(){
-        return Dictionary.size();
+        List<DictionarySource> current = layers;
+        DictionarySnapshot view = new DictionarySnapshot(current);
+        if (current.size() == 1) return view.count();
+        int below;
+        synchronized (this) {
+            // the layers below the user layer never change while mounted
+            if (countedLayers != current) {
+                belowTopCount = view.countBelowTop();
+                countedLayers = current;
+            }
+            below = belowTopCount;
+        }
+        return view.count(below);
+    }
+
+    /**
+     * Finds words matching a wildcard pattern: '*' matches any run of
+     * characters and '?' exactly one ("*tion", "*graph*", "c?t").
+     * @param pattern : pattern in any case
+     * @return list: sorted words matching the whole pattern
+     */
+    public List<String> searchPattern(String pattern){
+        PatternIndex index;
+        synchronized (this) {
+            if (patterns == null) patterns = new PatternIndex(snapshot().sort());
+            index = patterns;
+        }
+        return index.search(pattern);
+    }
+
+    /**
+     * Finds words that sound like the input (same phonetic key), including
+     * words that are spelled differently.
+     * @param word : query word; need not be in the dictionary
+     * @return list: sorted sound-alike words
+     */
+    public List<String> soundsLike(String word){
+        if (word == null || word.isBlank()) return List.of();
+        PhoneticIndex index;
+        synchronized (this) {
+            if (phonetics == null) phonetics = new PhoneticIndex(snapshot().sort());
+            index = phonetics;
+        }
+        return index.soundsLike(word.trim());
+    }
+
+    /**
+     * Finds the words that use exactly the given letters, in any order.
+     * Only letters count; '?' is a blank that stands for any letter.
+     * @param letters : rack of letters in any case ("listen", "ret?ain")
+     * @return list: sorted anagrams
+     */
+    public List<String> anagrams(String letters){
+        if (letters == null || letters.isBlank()) return List.of();
+        return anagramIndex().anagrams(letters);
+    }
+
+    /**
+     * Finds the words that can be built from some of the given letters,
+     * each letter used at most as often as it appears.
+     * '?' is a blank that stands for any letter.
+     * @param letters : rack of letters in any case
+     * @param minLength : shortest word wanted, in letters
+     * @return list: words, longest first, then alphabetical
+     */
+    public List<String> buildableWords(String letters, int minLength){
+        if (letters == null || letters.isBlank()) return List.of();
+        return anagramIndex().build(letters, minLength);
+    }
+
+    private synchronized AnagramIndex anagramIndex() {
+        if (anagrams == null) anagrams = new AnagramIndex(snapshot().sort());
+        return anagrams;
+    }
+
+    /**
+     * Writes an entry to the user layer and the search indexes without
+     * marking it as changed (the entry came from the saved dictionary).
+     */
+    private void store(dictionaryEntry entry) {
+        user.put(entry);
+        indexAdded(entry.getKey());
+    }
+
+    private void markDirty(String key) {
+        synchronized (dirtyLock) {
+            dirty.add(key);
+        }
+        for (java.util.function.Consumer<String> l : changeListeners) l.accept(key);
+    }
+
+    private synchronized void indexAdded(String key) {
+        if (patterns != null) patterns.add(key);
+        if (phonetics != null) phonetics.add(key);
+        if (anagrams != null) anagrams.add(key);
+        BloomFilter filter = keyFilter;
+        if (filter != null) {
+            filter.add(key);
+            // past its sizing the filter passes too many misses; rebuild it larger
+            if ((filter.added() & 1023) == 0 && filter.expectedFpp() > 2 * filterFpp) keyFilter = null;
+        }
     }
+
+    private synchronized void indexRemoved(String key) {
+        if (patterns != null) patterns.remove(key);
+        if (phonetics != null) phonetics.remove(key);
+        if (anagrams != null) anagrams.remove(key);
+        BloomFilter filter = keyFilter;
+        // bits cannot be cleared; once a tenth of the keys are gone, rebuild without them
+        if (filter != null && ++filterStale > Math.max(1024, filter.added() / 10)) keyFilter = null;
+    }
+
+    /**
+     * Returns the lookup guard, building it if needed. The
+     * largest layer's own filter (persisted with segments and compressed
+     * snapshots) is copied and the other layers' keys are added to it, so
+     * only the small layers are scanned; otherwise every visible key is.
+     */
+    private BloomFilter lookupFilter() {
+        BloomFilter filter = keyFilter;
+        if (filter != null) return filter;
+        synchronized (this) {
+            if (keyFilter != null) return keyFilter;
+            List<DictionarySource> current = layers;
+            double fpp = filterFpp;
+
+            DictionarySource largest = null;
+            long total = 0;
+            for (DictionarySource layer : current) {
+                total += layer.size();
+                if (largest == null || layer.size() > largest.size()) largest = layer;
+            }
+            BloomFilter base = largest.keyFilter();
+            if (base != null && base.expectedFpp() <= fpp) {
+                filter = base.copy();
+                for (DictionarySource layer : current) {
+                    if (layer != largest) layer.keys("").forEachRemaining(filter::add);
+                }
+                if (filter.expectedFpp() > 2 * fpp) filter = null;
+            }
+            if (filter == null) {
+                filter = BloomFilter.withHeadroom(total, fpp);
+                new DictionarySnapshot(current).forEachKey("", filter::add);
+            }
+            filterStale = 0;
+            keyFilter = filter;
+            return filter;
+        }
+    }
+
+    /**
+     * Sets the false positive rate of the lookup filter; the filter is
+     * rebuilt at the new size on the next lookup.
+     * @param fpp : rate between 0 and 1 (default 0.01, or the dictionary.bloomFpp property)
+     */
+    public synchronized void setFilterFalsePositiveRate(double fpp) {
+        if (!(fpp > 0 && fpp < 1)) throw new IllegalArgumentException("fpp must be in (0, 1): " + fpp);
+        filterFpp = fpp;
+        keyFilter = null;
+    }
+
+    /**
+     * @return String: size of the lookup filter and how often it rejected a
+     *         missing word or let one through
+     */
+    public String filterReport() {
+        BloomFilter filter = keyFilter;
+        long rejected = filterRejected.sum();
+        long passed = filterPassedMisses.sum();
+        long misses = rejected + passed;
+        String counts = String.format("%d missing-word lookups, %d rejected, %d passed (%.2f%%)",
+                misses, rejected, passed, misses == 0 ? 0.0 : 100.0 * passed / misses);
+        if (filter == null) return "Key filter: not built; " + counts;
+        return String.format("Key filter: %d keys, %d KB, %d hashes, expected fpp %.3f%% (target %.3f%%); %s",
+                filter.added(), filter.sizeInBytes() / 1024, filter.hashes(),
+                100 * filter.expectedFpp(), 100 * filterFpp, counts);
+    }
+
+    /**
+     * Runs service calls the application makes on its own, such as
+     * refreshing the view after a background load batch or a replicated
+     * change, rather than on the user's behalf. The plain service just runs
+     * them; {@link RecordingService} leaves them out of its trace.
+     * @param work : calls to make
+     * @return the result of the work
+     */
+    public <T> T untraced(java.util.function.Supplier<T> work) {
+        return work.get();
+    }
+
+    /**
+     * Captures an immutable view of the whole dictionary. O(number of
+     * layers); writers are never blocked and never seen by the view.
+     * @return the current snapshot
+     */
+    public DictionarySnapshot snapshot() {
+        return new DictionarySnapshot(layers);
+    }
+
+    // ----------------------------
+    // Layers
+    // ----------------------------
+
+    /**
+     * Mounts a dictionary source below the user layer and above every
+     * previously mounted source, so later mounts take priority.
+     * The source is used in place; nothing is copied.
+     * @param source : layer to mount
+     */
+    public synchronized void mount(DictionarySource source) {
+        List<DictionarySource> next = new ArrayList<>(layers);
+        next.add(1, source);
+        layers = List.copyOf(next);
+        patterns = null; // indexes are rebuilt over the new key set on next use
+        phonetics = null;
+        anagrams = null;
+        keyFilter = null;
+    }
+
+    /**
+     * Unmounts a source by name. The user layer cannot be unmounted.
+     * @param name : name of the mounted source
+     * @return boolean: True if a source was removed
+     */
+    public synchronized boolean unmount(String name) {
+        List<DictionarySource> next = new ArrayList<>(layers);
+        for (int i = 1; i < next.size(); i++) {
+            if (next.get(i).name().equals(name)) {
+                next.remove(i);
+                layers = List.copyOf(next);
+                patterns = null;
+                phonetics = null;
+                anagrams = null;
+                keyFilter = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return List: names of the mounted layers, highest priority first
+     */
+    public List<String> layerNames() {
+        return snapshot().layerNames();
+    }
+
     public List<String> topSearched(int n) {
-        return frequency.entrySet().stream()
-                .sorted((a, b) -> {
-                    int cmp = Integer.compare(b.getValue(), a.getValue()); // desc count
-                    if (cmp != 0) return cmp;
-                    return a.getKey().compareTo(b.getKey());
-                })
-                .limit(n)
-                .map(Map.Entry::getKey)
-                .toList();
+        if (n <= 0) return List.of();
+        record Count(String key, int value) { }
+        Comparator<Count> order = (a, b) -> {
+            int cmp = Integer.compare(b.value(), a.value()); // desc count
+            if (cmp != 0) return cmp;
+            return a.key().compareTo(b.key());
+        };
+
+        // keep only the n best in a heap whose head is the worst of them
+        PriorityQueue<Count> best = new PriorityQueue<>(order.reversed());
+        synchronized (frequency) {
+            frequency.forEach((key, value) -> {
+                Count c = new Count(key, value);
+                if (best.size() < n) {
+                    best.add(c);
+                } else if (order.compare(c, best.peek()) < 0) {
+                    best.poll();
+                    best.add(c);
+                }
+            });
+        }
+        List<Count> sorted = new ArrayList<>(best);
+        sorted.sort(order);
+        return sorted.stream().map(Count::key).toList();
+    }
+    /**
+     * Adds search counts gathered elsewhere, such as from a corpus, to the
+     * frequency statistics used by {@link #topSearched}.
+     * @param counts : counts per normalized word
+     */
+    void addFrequency(KeyTable counts) {
+        synchronized (frequency) {
+            frequency.addAll(counts);
+            counts.forEach(completions::increment);
+        }
     }
     public void clearFrequency() {
-        frequency.clear();
+        synchronized (frequency) {
+            frequency.clear();
+            completions.clear();
+        }
+    }
 
+    /**
+     * Suggests completions for a prefix being typed: the most searched words
+     * starting with it, then, if there are fewer than k, the first other
+     * words in alphabetical order. Cost follows the prefix length and k, not
+     * the number of matching words.
+     * @param prefix : prefix in any case
+     * @param k : number of suggestions wanted (at most 10)
+     * @return list: up to k words, most searched first
+     */
+    public List<String> complete(String prefix, int k){
+        if (prefix == null || prefix.isBlank() || k <= 0) return List.of();
+        String key = KeyNormalizer.normalize(prefix);
+        k = Math.min(k, CompletionIndex.MAX_K);
+
+        List<String> words = new ArrayList<>(completions.complete(key, k));
+        if (words.size() < k) {
+            Set<String> ranked = new HashSet<>(words);
+            for (String w : snapshot().searchPrefix(key, k)) {
+                if (words.size() < k && !ranked.contains(w)) words.add(w);
+            }
+        }
+        return words;
     }
     public List<dictionaryEntry> getAllEntriesSorted() {
-        List<String> words = sort(); // your existing sorted word list (keys)
         List<dictionaryEntry> entries = new ArrayList<>();
-
-        for (String w : words) {
-            dictionaryEntry e = Dictionary.get(w); // keys already lowercase
-            if (e != null) entries.add(e);
-        }
+        snapshot().forEachEntry(entries::add);
         return entries;
     }
 
+    /**
+     * Writes every entry, sorted by word, to a file in the record format.
+     * The file is written next to the destination and then moved over it,
+     * so a file that is currently memory-mapped by a lazy load stays intact.
+     * Entries come from a snapshot, so edits made during the save are not
+     * mixed into the file.
+     *
+     * Where a mapped file cannot be replaced (Windows), the mounted file is
+     * renamed aside first, the new file moved into place, and the layer
+     * remounted from it; the old file is deleted once it can be.
+     * @param path : destination file (replaced)
+     * @throws java.io.IOException if the file cannot be written
+     */
     public void saveToFile(java.nio.file.Path path) throws java.io.IOException {
-        try (java.io.BufferedWriter writer =
-                     java.nio.file.Files.newBufferedWriter(path, java.nio.charset.StandardCharsets.UTF_8)) {
+        DictionarySnapshot view = snapshot();
+        java.nio.file.Path tmp = writeRecords(view, path);
+        try {
+            java.nio.file.Files.move(tmp, path,
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                    java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+            return;
+        } catch (java.nio.file.FileSystemException e) {
+            if (mappedLayer(path) == null) throw e;
+        }
+
+        LazyEntryStore mapped = mappedLayer(path);
+        java.nio.file.Path aside = path.resolveSibling(path.getFileName() + ".old");
+        java.nio.file.Files.move(path, aside, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        java.nio.file.Files.move(tmp, path, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        replaceLayer(mapped, LazyEntryStore.open(path, null));
+        try {
+            java.nio.file.Files.deleteIfExists(aside);
+        } catch (java.io.IOException stillMapped) {
+            // replaced by the next save once the old mapping has been collected
+        }
+    }
 
-            for (dictionaryEntry entry : getAllEntriesSorted()) {
+    /**
+     * @return the mounted lazy layer mapping a file, or null
+     */
+    private LazyEntryStore mappedLayer(java.nio.file.Path path) throws java.io.IOException {
+        for (DictionarySource layer : layers) {
+            if (layer instanceof LazyEntryStore lazy && java.nio.file.Files.exists(lazy.file())
+                    && java.nio.file.Files.isSameFile(lazy.file(), path)) {
+                return lazy;
+            }
+        }
+        return null;
+    }
 
-                String word = safe(entry.getWord());
-                String pron = safe(entry.getPronounce());
-                String def  = safe(entry.getDefinition());
-                String ex   = safe(entry.getExample());
-                String syns = String.join(", ", entry.getSyn()).replace("|", "/");
+    /**
+     * Swaps a mounted layer for another with the same priority.
+     */
+    private synchronized void replaceLayer(DictionarySource old, DictionarySource replacement) {
+        List<DictionarySource> next = new ArrayList<>(layers);
+        int i = next.indexOf(old);
+        if (i < 1) return;
+        next.set(i, replacement);
+        layers = List.copyOf(next);
+        patterns = null;
+        phonetics = null;
+        anagrams = null;
+        keyFilter = null;
+    }
 
-                writer.write(word + "|" + pron + "|" + def + "|" + ex + "|" + syns);
-                writer.newLine();
+    /**
+     * Writes a snapshot, sorted by word, to a file in the record format.
+     * @param view : snapshot to write
+     * @param path : destination file (replaced)
+     * @throws java.io.IOException if the file cannot be written
+     */
+    public static void saveToFile(DictionarySnapshot view, java.nio.file.Path path) throws java.io.IOException {
+        java.nio.file.Path tmp = writeRecords(view, path);
+        java.nio.file.Files.move(tmp, path,
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes a snapshot to a temporary file next to the destination.
+     * @return the temporary file
+     */
+    private static java.nio.file.Path writeRecords(DictionarySnapshot view, java.nio.file.Path path)
+            throws java.io.IOException {
+        java.nio.file.Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (RecordCodec.Writer writer = RecordCodec.newWriter(tmp)) {
+            try {
+                view.forEachEntry(entry -> {
+                    try {
+                        writer.write(entry);
+                    } catch (java.io.IOException e) {
+                        throw new java.io.UncheckedIOException(e);
+                    }
+                });
+            } catch (java.io.UncheckedIOException e) {
+                throw e.getCause();
             }
         }
+        return tmp;
     }
 
+    /**
+     * Loads every record of a file into the dictionary.
+     * @param path : file written by {@link #saveToFile}; ignored if missing
+     * @throws java.io.IOException if the file cannot be read
+     */
     public void loadFromFile(java.nio.file.Path path) throws java.io.IOException {
+        if (!java.nio.file.Files.exists(path)) return;
+        RecordCodec.readFile(path, false, r -> store(r.toEntry()));
+    }
+
+    /**
+     * Saves the dictionary as a directory of segments (see
+     * {@link SegmentedStore}), rewriting only the segments that hold words
+     * changed since the last save. The first save into a directory writes
+     * every segment.
+     * @param dir : segment directory (created if needed)
+     * @return count: number of segment files written
+     * @throws java.io.IOException if a segment cannot be read or written;
+     *         the changes stay pending for the next save
+     */
+    public int saveSegments(java.nio.file.Path dir) throws java.io.IOException {
+        synchronized (saveLock) {
+            Set<String> changed;
+            synchronized (dirtyLock) {
+                changed = dirty;
+                dirty = new HashSet<>();
+            }
+            // taken after the swap: every write recorded in changed is in the view
+            List<DictionarySource> current = layers;
+            DictionarySnapshot view = new DictionarySnapshot(current);
+            try {
+                // built from the view itself, so it holds every saved key whatever the
+                // live filter went through meanwhile; it spares the next start a scan
+                long total = 0;
+                for (DictionarySource layer : current) total += layer.size();
+                BloomFilter filter = BloomFilter.withHeadroom(total, filterFpp);
+                view.forEachKey("", filter::add);
+                return SegmentedStore.save(dir, view, changed, filter);
+            } catch (java.io.IOException | RuntimeException e) {
+                synchronized (dirtyLock) {
+                    dirty.addAll(changed);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Registers a listener called after every add, edit, delete or import,
+     * on the thread that made the change. Listeners must return quickly.
+     * @param listener : called once per changed word
+     */
+    public void onChange(Runnable listener) {
+        changeListeners.add(key -> listener.run());
+    }
+
+    /**
+     * Registers a listener told which word changed after every add, edit,
+     * delete or import, on the thread that made the change, once the
+     * change is visible. Listeners must return quickly.
+     * @param listener : receives the normalized word
+     */
+    public void onWordChanged(java.util.function.Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Applies changes received from a primary (see {@link ReplicaClient}),
+     * in order. Consecutive additions are written as one batch. Replicated
+     * changes are not marked for saving and do not notify change listeners.
+     * @param mutations : changes in log order
+     */
+    void applyMutations(List<ReplicationLog.Mutation> mutations) {
+        List<dictionaryEntry> puts = new ArrayList<>();
+        for (ReplicationLog.Mutation m : mutations) {
+            if (m.entry() != null) {
+                puts.add(m.entry());
+                continue;
+            }
+            putBatch(puts);
+            erase(m.key());
+        }
+        putBatch(puts);
+    }
+
+    private void putBatch(List<dictionaryEntry> entries) {
+        if (entries.isEmpty()) return;
+        user.putAll(entries);
+        for (dictionaryEntry entry : entries) indexAdded(entry.getKey());
+        entries.clear();
+    }
+
+    /**
+     * @return count: number of words held by the writable user layer alone
+     * (added or edited, not counting deletes or mounted layers)
+     */
+    public int userCount() {
+        return user.size();
+    }
+
+    /**
+     * @return count: number of words changed since the last segment save
+     */
+    public int pendingChanges() {
+        synchronized (dirtyLock) {
+            return dirty.size();
+        }
+    }
 
+    /**
+     * Loads every segment of a directory into the dictionary.
+     * @param dir : directory written by {@link #saveSegments}; ignored if it has no manifest
+     * @throws java.io.IOException if a segment is missing or corrupt
+     */
+    public void loadSegments(java.nio.file.Path dir) throws java.io.IOException {
+        if (!SegmentedStore.exists(dir)) return;
+        SegmentedStore.readAll(dir, r -> store(r.toEntry()));
+    }
+
+    /**
+     * Writes every entry, sorted by word, to a compressed snapshot.
+     * @param path : destination file (replaced)
+     * @param blockSize : number of entries per independently compressed block
+     * @throws java.io.IOException if the file cannot be written
+     */
+    public void saveSnapshot(java.nio.file.Path path, int blockSize) throws java.io.IOException {
+        DictionarySnapshot view = snapshot();
+        List<String> words = view.sort();
+        Iterable<dictionaryEntry> entries = () -> words.stream()
+                .map(w -> view.resolve(w))
+                .filter(Objects::nonNull)
+                .iterator();
+
+        java.nio.file.Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        CompressedSnapshot.write(tmp, entries, blockSize, filterFpp);
+        java.nio.file.Files.move(tmp, path,
+                java.nio.file.StandardCopyOption.REPLACE_EXISTING,
+                java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads every entry of a compressed snapshot, inflating blocks in parallel.
+     * @param path : file written by {@link #saveSnapshot}; ignored if missing
+     * @throws java.io.IOException if the file cannot be read
+     */
+    public void loadSnapshot(java.nio.file.Path path) throws java.io.IOException {
         if (!java.nio.file.Files.exists(path)) return;
+        CompressedSnapshot.open(path).readAll(this::store);
+    }
 
-        java.util.List<String> lines =
-                java.nio.file.Files.readAllLines(path, java.nio.charset.StandardCharsets.UTF_8);
+    /**
+     * Opens a file in lazy mode and mounts it as a read-only layer: only the
+     * words and the offset of each record are read now; full entries are
+     * decoded on first lookup.
+     * @param path : file written by {@link #saveToFile}; ignored if missing
+     * @throws java.io.IOException if the file cannot be read
+     */
+    public void loadKeysFromFile(java.nio.file.Path path) throws java.io.IOException {
+        if (!java.nio.file.Files.exists(path)) return;
+        mount(LazyEntryStore.open(path, null));
+    }
 
-        for (String line : lines) {
+    /**
+     * Mounts a dictionary file as a read-only layer: a segment directory, a
+     * compressed snapshot if its name ends in ".dicz", otherwise a record
+     * file in lazy mode.
+     * @param path : file or segment directory to mount
+     * @throws java.io.IOException if the file cannot be read
+     */
+    public void mountFile(java.nio.file.Path path) throws java.io.IOException {
+        if (SegmentedStore.exists(path)) {
+            mount(SegmentedStore.open(path, null));
+        } else if (path.getFileName().toString().endsWith(".dicz")) {
+            mount(CompressedSnapshot.open(path));
+        } else {
+            mount(LazyEntryStore.open(path, null));
+        }
+    }
 
-            if (line == null || line.isBlank()) continue;
+    /**
+     * Marks a file as being loaded in the background. Until
+     * {@link #finishLoading()} is called, words deleted leave a tombstone so
+     * the load cannot bring them back, and, for a record file, lookups that
+     * miss the map are answered by scanning the file directly. Each missing
+     * word is scanned for once per load; the scan is linear in the file, so
+     * callers on the EDT should look words up on a worker while loading.
+     * @param path : record file or segment directory being loaded
+     */
+    public void beginLoading(java.nio.file.Path path) {
+        fileMisses.clear();
+        loading = true;
+        loadingFrom = java.nio.file.Files.isRegularFile(path) ? path : null;
+    }
 
-            String[] parts = line.split("\\|", -1);
-            if (parts.length < 5) continue;
+    /**
+     * Ends the background load started with {@link #beginLoading}.
+     */
+    public void finishLoading() {
+        loadingFrom = null;
+        loading = false;
+        fileMisses.clear();
+    }
 
-            String word = parts[0].trim();
-            String pron = parts[1].trim();
-            String def  = parts[2].trim();
-            String ex   = parts[3].trim();
-            java.util.List<String> syns =
-                    java.util.Arrays.asList(parts[4].split("\\s*,\\s*"));
+    /**
+     * @return boolean: True while a background load is in progress
+     */
+    public boolean isLoading() {
+        return loading;
+    }
 
-            addOrUpdate(new dictionaryEntry(word, pron, def, ex, syns));
+    /**
+     * Scans a record file for one word without loading the rest.
+     * @param path : file to scan
+     * @param key : normalized word
+     * @return the entry, or null if missing or unreadable
+     */
+    private dictionaryEntry findInFile(java.nio.file.Path path, String key) {
+        try {
+            return RecordCodec.find(path, key);
+        } catch (java.io.IOException e) {
+            return null;
         }
     }
 
-    private String safe(String s) {
-        if (s == null) return "";
+    /**
+     * Validates an import file without changing the dictionary: finds
+     * malformed records, words repeated in the file, and which words are
+     * new, changed or unchanged compared to the current entries.
+     * @param path : file to import (records may be wrapped over several lines)
+     * @return ImportPlan: the classified records, to pass to {@link #applyImport}
+     * @throws java.io.IOException if the file cannot be read
+     */
+    public ImportPlan planImport(java.nio.file.Path path) throws java.io.IOException {
+        return ImportPlan.scan(path, snapshot());
+    }
 
-        return s.replace("\r", " ")
-                .replace("\n", " ")
-                .replace("|", "/")
-                .trim();
+    /**
+     * Writes the new (and optionally the changed) words of a plan as one
+     * batch. Unchanged words are not touched.
+     * @param plan : plan returned by {@link #planImport}
+     * @param replaceConflicts : True to overwrite existing entries that differ
+     * @return count: number of entries written
+     */
+    public int applyImport(ImportPlan plan, boolean replaceConflicts) {
+        List<dictionaryEntry> entries = plan.entries(replaceConflicts);
+        if (entries.isEmpty()) return 0;
+        user.putAll(entries);
+        for (dictionaryEntry entry : entries) {
+            indexAdded(entry.getKey());
+            markDirty(entry.getKey());
+        }
+        return entries.size();
     }
 }
@@ -0,0 +1,282 @@
+package dictionary;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Immutable point-in-time view of a {@link DictionaryService}.
+ *
+ * Holds a frozen copy of the layer stack in which every writable layer has
+ * been replaced by its {@link DictionarySource#snapshot()}. Taking one is
+ * O(number of layers) and never blocks writers, so savers, exporters and
+ * background readers can iterate a consistent state while edits and imports
+ * carry on.
+ *
+ * Lookups here do not count towards search frequency.
+ */
+public final class DictionarySnapshot {
+
+    /** Layers, highest priority first */
+    private final List<DictionarySource> layers;
+
+    DictionarySnapshot(List<DictionarySource> layers) {
+        List<DictionarySource> frozen = new ArrayList<>(layers.size());
+        for (DictionarySource layer : layers) frozen.add(layer.snapshot());
+        this.layers = List.copyOf(frozen);
+    }
+
+    /**
+     * Looks up a word.
+     *
+     * @param word word in any case
+     * @return the visible entry, or empty if missing or deleted
+     */
+    public Optional<dictionaryEntry> find(String word) {
+        if (word == null) return Optional.empty();
+        return Optional.ofNullable(resolve(layers, KeyNormalizer.normalize(word), false));
+    }
+
+    /**
+     * @return sorted list of every visible word
+     */
+    public List<String> sort() {
+        return searchPrefix("");
+    }
+
+    /**
+     * @param prefix prefix in any case
+     * @return sorted list of visible words starting with the prefix
+     */
+    public List<String> searchPrefix(String prefix) {
+        List<String> results = new ArrayList<>();
+        forEachKey(KeyNormalizer.normalize(prefix), results::add);
+        return results;
+    }
+
+    /**
+     * @param prefix prefix in any case
+     * @param limit  maximum number of words returned
+     * @return the first visible words starting with the prefix, in sorted
+     *         order; only as many keys as needed are merged
+     */
+    public List<String> searchPrefix(String prefix, int limit) {
+        List<String> results = new ArrayList<>(Math.min(limit, 64));
+        if (limit > 0) forEachKey(KeyNormalizer.normalize(prefix), limit, results::add);
+        return results;
+    }
+
+    /**
+     * @return number of visible words
+     */
+    public int count() {
+        if (layers.size() == 1) return layers.get(0).size();
+        return count(countBelowTop());
+    }
+
+    /**
+     * Counts the visible words of every layer but the top one, with one
+     * merge of their keys (none if there is only one). The result only
+     * changes when layers are mounted or unmounted, so callers cache it
+     * for {@link #count(int)}.
+     *
+     * @return number of words visible below the top layer
+     */
+    int countBelowTop() {
+        if (layers.size() == 1) return 0;
+        if (layers.size() == 2) return layers.get(1).size();
+        int[] n = new int[1];
+        new DictionarySnapshot(layers.subList(1, layers.size())).forEachKey("", k -> n[0]++);
+        return n[0];
+    }
+
+    /**
+     * Counts the visible words from the count below the top layer, in time
+     * proportional to the top layer: its words add to the count unless
+     * already visible below, its tombstones subtract from it if they hide one.
+     *
+     * @param belowTop result of {@link #countBelowTop()} for the same lower layers
+     * @return number of visible words
+     */
+    int count(int belowTop) {
+        if (layers.size() == 1) return layers.get(0).size();
+        DictionarySource top = layers.get(0);
+        int n = belowTop;
+        for (Iterator<String> it = top.keys(""); it.hasNext(); ) {
+            if (!visibleBelowTop(it.next())) n++;
+        }
+        for (Iterator<String> it = top.deletedKeys(); it.hasNext(); ) {
+            if (visibleBelowTop(it.next())) n--;
+        }
+        return n;
+    }
+
+    /**
+     * @return true if the word is visible when the top layer is ignored
+     */
+    private boolean visibleBelowTop(String key) {
+        for (int i = 1; i < layers.size(); i++) {
+            DictionarySource layer = layers.get(i);
+            if (layer.isDeleted(key)) return false;
+            if (layer.contains(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Streams every visible entry in sorted order without materializing the
+     * whole dictionary. Lazily stored entries are decoded without caching.
+     *
+     * @param sink receives each entry
+     */
+    public void forEachEntry(Consumer<dictionaryEntry> sink) {
+        forEachKey("", key -> {
+            dictionaryEntry e = resolve(layers, key, true);
+            if (e != null) sink.accept(e);
+        });
+    }
+
+    /**
+     * @return names of the layers, highest priority first
+     */
+    public List<String> layerNames() {
+        List<String> names = new ArrayList<>(layers.size());
+        for (DictionarySource layer : layers) names.add(layer.name());
+        return names;
+    }
+
+    /**
+     * Resolves a word for a bulk pass, without caching.
+     *
+     * @param key normalized word
+     * @return the visible entry, or null if missing or deleted
+     */
+    dictionaryEntry resolve(String key) {
+        return resolve(layers, key, true);
+    }
+
+    /**
+     * Checks whether a word is visible without decoding its entry.
+     *
+     * @param key normalized word
+     * @return true if the highest layer that knows the word holds it
+     */
+    boolean containsKey(String key) {
+        for (int i = 0; i < layers.size(); i++) {
+            DictionarySource layer = layers.get(i);
+            if (layer.isDeleted(key)) return false;
+            if (layer.contains(key)) return true;
+        }
+        return false;
+    }
+
+    // The static helpers below work on any immutable layer list. The service
+    // uses them directly on its current list for single-key operations, so
+    // the lookup hot path does not allocate a snapshot.
+
+    /**
+     * Finds the highest layer that decides a word: it either holds the word
+     * or hides it.
+     *
+     * @param layers layers, highest priority first
+     * @param key    normalized word
+     * @return index of that layer, or -1 if no layer knows the word
+     */
+    static int locate(List<DictionarySource> layers, String key) {
+        for (int i = 0; i < layers.size(); i++) {
+            DictionarySource layer = layers.get(i);
+            if (layer.contains(key) || layer.isDeleted(key)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param layers layers, highest priority first
+     * @param key    normalized word
+     * @return true if a layer below the top one holds the word
+     */
+    static boolean containedBelowTop(List<DictionarySource> layers, String key) {
+        for (int i = 1; i < layers.size(); i++) {
+            if (layers.get(i).contains(key)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Resolves a word through the layers, highest priority first.
+     *
+     * @param layers layers, highest priority first
+     * @param key    normalized word
+     * @param bulk   true to use {@link DictionarySource#read} (no caching)
+     * @return the visible entry, or null if missing or deleted
+     */
+    static dictionaryEntry resolve(List<DictionarySource> layers, String key, boolean bulk) {
+        for (int i = 0; i < layers.size(); i++) {
+            DictionarySource layer = layers.get(i);
+            if (layer.isDeleted(key)) return null;
+            dictionaryEntry e = bulk ? layer.read(key) : layer.get(key);
+            if (e != null) return e;
+        }
+        return null;
+    }
+
+    /**
+     * K-way merge of every layer's sorted keys. A key is emitted once, and
+     * only if no higher layer hides it.
+     *
+     * @param prefix normalized prefix ("" for all words)
+     * @param sink   receives the visible keys in sorted order
+     */
+    void forEachKey(String prefix, Consumer<String> sink) {
+        forEachKey(prefix, Integer.MAX_VALUE, sink);
+    }
+
+    /**
+     * {@link #forEachKey(String, Consumer)} that stops after a number of keys.
+     *
+     * @param prefix normalized prefix ("" for all words)
+     * @param limit  maximum number of keys emitted
+     * @param sink   receives the visible keys in sorted order
+     */
+    void forEachKey(String prefix, int limit, Consumer<String> sink) {
+        int emitted = 0;
+        if (layers.size() == 1) {
+            Iterator<String> it = layers.get(0).keys(prefix);
+            while (emitted++ < limit && it.hasNext()) sink.accept(it.next());
+            return;
+        }
+
+        PriorityQueue<KeyHead> heads = new PriorityQueue<>(
+                Comparator.comparing(KeyHead::key).thenComparingInt(KeyHead::layer));
+        for (int i = 0; i < layers.size(); i++) {
+            KeyHead.push(heads, layers.get(i).keys(prefix), i);
+        }
+
+        while (!heads.isEmpty() && emitted < limit) {
+            KeyHead top = heads.poll();
+            String key = top.key();
+
+            // the lowest layer index holding the key comes out first
+            boolean hidden = false;
+            for (int i = 0; i < top.layer() && !hidden; i++) {
+                hidden = layers.get(i).isDeleted(key);
+            }
+            if (!hidden) {
+                sink.accept(key);
+                emitted++;
+            }
+
+            KeyHead.push(heads, top.rest(), top.layer());
+            while (!heads.isEmpty() && heads.peek().key().equals(key)) {
+                KeyHead next = heads.poll();
+                KeyHead.push(heads, next.rest(), next.layer());
+            }
+        }
+    }
+
+    /** Current key of one layer's iterator during {@link #forEachKey} */
+    private record KeyHead(String key, int layer, Iterator<String> rest) {
+        static void push(PriorityQueue<KeyHead> heads, Iterator<String> it, int layer) {
+            if (it.hasNext()) heads.add(new KeyHead(it.next(), layer, it));
+        }
+    }
+}
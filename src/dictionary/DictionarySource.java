@@ -0,0 +1,139 @@
+package dictionary;
+
+import java.util.Iterator;
+
+/**
+ * One layer of a federated dictionary.
+ *
+ * {@link DictionaryService} mounts several sources in priority order (for
+ * example a large read-only base lexicon, domain glossaries, and the user's
+ * own additions on top). A lookup resolves through the layers from the
+ * highest priority down; sorted listings are produced by merging the sorted
+ * key iterators of every layer, so no layer is ever copied into another.
+ *
+ * All keys are normalized words. Writable sources also record deletions
+ * ("tombstones") so a word can be hidden from the layers beneath them.
+ */
+public interface DictionarySource {
+
+    /**
+     * @return short name used in listings and error messages
+     */
+    String name();
+
+    /**
+     * @return true if entries can be added to or removed from this source
+     */
+    default boolean isWritable() {
+        return false;
+    }
+
+    /**
+     * Returns the entry stored in this source.
+     *
+     * @param key normalized word
+     * @return the entry, or null if this source has no live entry for it
+     */
+    dictionaryEntry get(String key);
+
+    /**
+     * Returns an entry for a bulk pass (saving, exporting). Sources that
+     * cache decoded entries should not let such a pass flush their cache.
+     *
+     * @param key normalized word
+     * @return the entry, or null if this source has no live entry for it
+     */
+    default dictionaryEntry read(String key) {
+        return get(key);
+    }
+
+    /**
+     * @param key normalized word
+     * @return true if this source has a live entry for the word
+     */
+    boolean contains(String key);
+
+    /**
+     * @param key normalized word
+     * @return true if this source hides the word from lower layers
+     */
+    default boolean isDeleted(String key) {
+        return false;
+    }
+
+    /**
+     * Iterates live keys starting with a prefix, in sorted order.
+     *
+     * @param prefix normalized prefix ("" for every key)
+     * @return sorted iterator over matching keys
+     */
+    Iterator<String> keys(String prefix);
+
+    /**
+     * Iterates the words this source hides from lower layers.
+     *
+     * @return iterator over tombstoned keys (empty for read-only sources)
+     */
+    default Iterator<String> deletedKeys() {
+        return java.util.Collections.emptyIterator();
+    }
+
+    /**
+     * @return number of live entries in this source
+     */
+    int size();
+
+    /**
+     * Returns an immutable point-in-time view of this source. Readers use it
+     * to see a consistent state while writers carry on. Sources that never
+     * change return themselves.
+     *
+     * @return read-only view that will not observe later writes
+     */
+    default DictionarySource snapshot() {
+        return this;
+    }
+
+    /**
+     * Returns a filter that holds at least every key of this source, for
+     * callers that want to reject missing words without a lookup. Sources
+     * that persist one return it; it must not be modified.
+     *
+     * @return the source's key filter, or null if it has none
+     */
+    default BloomFilter keyFilter() {
+        return null;
+    }
+
+    /**
+     * Stores an entry, replacing any entry or tombstone for the same word.
+     *
+     * @param entry entry to store
+     * @throws UnsupportedOperationException if the source is read-only
+     */
+    default void put(dictionaryEntry entry) {
+        throw new UnsupportedOperationException(name() + " is read-only");
+    }
+
+    /**
+     * Stores a batch of entries. Writable sources publish the whole batch
+     * as one version, so readers see either none or all of it.
+     *
+     * @param entries entries to store; later entries win for the same word
+     * @throws UnsupportedOperationException if the source is read-only
+     */
+    default void putAll(java.util.Collection<dictionaryEntry> entries) {
+        for (dictionaryEntry e : entries) put(e);
+    }
+
+    /**
+     * Removes the live entry for a word.
+     *
+     * @param key       normalized word
+     * @param tombstone true to also hide the word in lower layers
+     * @throws UnsupportedOperationException if the source is read-only
+     */
+    default void remove(String key, boolean tombstone) {
+        throw new UnsupportedOperationException(name() + " is read-only");
+    }
+}
@@ -0,0 +1,244 @@
+package dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Validated, deduplicated view of an import file, computed before anything
+ * is written to the dictionary.
+ *
+ * Building a plan takes three passes over the memory-mapped file:
+ * - a sequential scan that only finds record boundaries (lenient format,
+ *   so wrapped records are accepted)
+ * - a parallel pass that decodes every record and rejects malformed ones
+ *   (missing or extra fields, empty word)
+ * - a parallel pass that compares the last occurrence of each word with the
+ *   dictionary and sorts it into new, changed (a conflict with an existing
+ *   entry) or unchanged
+ *
+ * Earlier occurrences of a word repeated in the file are dropped, as a
+ * sequential import would overwrite them anyway. Unchanged words are never
+ * written, so importing the same file again costs one read of the file and
+ * no updates.
+ */
+public final class ImportPlan {
+
+    /** Records decoded by one parallel task */
+    private static final int CHUNK = 1024;
+
+    /** Malformed records and duplicate words listed in the summary */
+    private static final int SUMMARY_ITEMS = 10;
+
+    private static final byte OK = 0;
+    private static final byte MISSING_FIELDS = 1;
+    private static final byte EXTRA_FIELDS = 2;
+    private static final byte EMPTY_WORD = 3;
+
+    private static final byte NEW = 0;
+    private static final byte CHANGED = 1;
+    private static final byte UNCHANGED = 2;
+
+    /**
+     * A record that was not imported.
+     *
+     * @param line   line number where the record starts (1-based)
+     * @param reason why the record was rejected
+     */
+    public record Problem(int line, String reason) { }
+
+    private final String file;
+    private final int records;
+    private final List<Problem> malformed;
+    private final int duplicates;
+    private final List<String> duplicateWords;
+    private final List<dictionaryEntry> additions;
+    private final List<dictionaryEntry> conflicts;
+    private final int unchanged;
+
+    private ImportPlan(String file, int records, List<Problem> malformed, int duplicates,
+                       List<String> duplicateWords, List<dictionaryEntry> additions,
+                       List<dictionaryEntry> conflicts, int unchanged) {
+        this.file = file;
+        this.records = records;
+        this.malformed = malformed;
+        this.duplicates = duplicates;
+        this.duplicateWords = duplicateWords;
+        this.additions = additions;
+        this.conflicts = conflicts;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Scans an import file and classifies every record against a snapshot.
+     *
+     * @param path file to import
+     * @param view dictionary state the records are compared with
+     * @return the plan; nothing has been written yet
+     * @throws IOException if the file cannot be read
+     */
+    static ImportPlan scan(Path path, DictionarySnapshot view) throws IOException {
+        ByteBuffer buf = RecordCodec.map(path);
+
+        // 1. boundaries (sequential: a record's start depends on the previous one)
+        Scan scan = new Scan();
+        RecordCodec.scanAll(buf, true, r -> {
+            if (scan.n == scan.starts.length) scan.grow();
+            scan.starts[scan.n] = r.offset();
+            scan.status[scan.n] = !r.isValid() ? MISSING_FIELDS
+                    : r.fieldCount() > RecordCodec.FIELDS ? EXTRA_FIELDS : OK;
+            scan.n++;
+        });
+        int n = scan.n;
+        int[] starts = scan.starts;
+        byte[] status = scan.status;
+
+        // 2. decode in parallel; each task has its own cursor
+        dictionaryEntry[] entries = new dictionaryEntry[n];
+        String[] keys = new String[n];
+        IntStream.range(0, (n + CHUNK - 1) / CHUNK).parallel().forEach(c -> {
+            RecordCodec.Record r = RecordCodec.cursor(buf);
+            int to = Math.min(n, (c + 1) * CHUNK);
+            for (int i = c * CHUNK; i < to; i++) {
+                if (status[i] != OK) continue;
+                dictionaryEntry e = r.at(starts[i], true).toEntry();
+                String key = e.getKey();
+                if (key.isBlank()) {
+                    status[i] = EMPTY_WORD;
+                } else {
+                    entries[i] = e;
+                    keys[i] = key;
+                }
+            }
+        });
+
+        // 3. keep the last occurrence of each word
+        KeyTable last = new KeyTable(n);
+        int duplicates = 0;
+        Set<String> duplicateWords = new TreeSet<>();
+        for (int i = 0; i < n; i++) {
+            if (keys[i] == null) continue;
+            if (!last.put(keys[i], i)) {
+                duplicates++;
+                if (duplicateWords.size() < SUMMARY_ITEMS) duplicateWords.add(keys[i]);
+            }
+        }
+        int[] winners = new int[last.size()];
+        int[] w = new int[1];
+        last.forEach((key, i) -> winners[w[0]++] = i);
+        Arrays.sort(winners); // file order
+
+        // 4. compare with the dictionary in parallel
+        byte[] kind = new byte[winners.length];
+        IntStream.range(0, winners.length).parallel().forEach(j -> {
+            int i = winners[j];
+            dictionaryEntry existing = view.resolve(keys[i]);
+            kind[j] = existing == null ? NEW : existing.equals(entries[i]) ? UNCHANGED : CHANGED;
+        });
+
+        List<dictionaryEntry> additions = new ArrayList<>();
+        List<dictionaryEntry> conflicts = new ArrayList<>();
+        int unchanged = 0;
+        for (int j = 0; j < winners.length; j++) {
+            switch (kind[j]) {
+                case NEW -> additions.add(entries[winners[j]]);
+                case CHANGED -> conflicts.add(entries[winners[j]]);
+                default -> unchanged++;
+            }
+        }
+
+        return new ImportPlan(path.getFileName().toString(), n, problems(buf, starts, status, n),
+                duplicates, List.copyOf(duplicateWords), additions, conflicts, unchanged);
+    }
+
+    /** Growable boundary arrays filled by the sequential scan */
+    private static final class Scan {
+        int[] starts = new int[1024];
+        byte[] status = new byte[1024];
+        int n;
+
+        void grow() {
+            starts = Arrays.copyOf(starts, starts.length * 2);
+            status = Arrays.copyOf(status, status.length * 2);
+        }
+    }
+
+    /**
+     * Lists the rejected records with their line numbers, counting line
+     * breaks once up to the last rejected record.
+     */
+    private static List<Problem> problems(ByteBuffer buf, int[] starts, byte[] status, int n) {
+        List<Problem> problems = new ArrayList<>();
+        int line = 1;
+        int pos = 0;
+        for (int i = 0; i < n; i++) {
+            if (status[i] == OK) continue;
+            for (; pos < starts[i]; pos++) {
+                if (buf.get(pos) == '\n') line++;
+            }
+            problems.add(new Problem(line, switch (status[i]) {
+                case MISSING_FIELDS -> "fewer than " + RecordCodec.FIELDS + " fields";
+                case EXTRA_FIELDS -> "more than " + RecordCodec.FIELDS + " fields";
+                default -> "empty word";
+            }));
+        }
+        return problems;
+    }
+
+    /** @return number of records found in the file, valid or not */
+    public int records() { return records; }
+
+    /** @return records that were rejected, in file order */
+    public List<Problem> malformed() { return Collections.unmodifiableList(malformed); }
+
+    /** @return number of records dropped because the same word appears later in the file */
+    public int duplicates() { return duplicates; }
+
+    /** @return number of words not in the dictionary yet */
+    public int additions() { return additions.size(); }
+
+    /** @return number of words whose existing entry differs from the file */
+    public int conflicts() { return conflicts.size(); }
+
+    /** @return number of words already in the dictionary with the same content */
+    public int unchanged() { return unchanged; }
+
+    /**
+     * @param replaceConflicts true to overwrite existing entries that differ
+     * @return the entries to write, in file order within each group
+     */
+    List<dictionaryEntry> entries(boolean replaceConflicts) {
+        if (!replaceConflicts || conflicts.isEmpty()) return additions;
+        List<dictionaryEntry> all = new ArrayList<>(additions.size() + conflicts.size());
+        all.addAll(additions);
+        all.addAll(conflicts);
+        return all;
+    }
+
+    /**
+     * @return a human-readable report of the plan
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(file).append(": ").append(records).append(" records\n");
+        sb.append("  new words:            ").append(additions.size()).append('\n');
+        sb.append("  changed words:        ").append(conflicts.size()).append('\n');
+        sb.append("  unchanged words:      ").append(unchanged).append('\n');
+        sb.append("  duplicates in file:   ").append(duplicates);
+        if (!duplicateWords.isEmpty()) {
+            sb.append(" (").append(String.join(", ", duplicateWords));
+            if (duplicates > duplicateWords.size()) sb.append(", ...");
+            sb.append(')');
+        }
+        sb.append('\n');
+        sb.append("  malformed records:    ").append(malformed.size()).append('\n');
+        for (int i = 0; i < Math.min(SUMMARY_ITEMS, malformed.size()); i++) {
+            Problem p = malformed.get(i);
+            sb.append("    line ").append(p.line()).append(": ").append(p.reason()).append('\n');
+        }
+        if (malformed.size() > SUMMARY_ITEMS) sb.append("    ...\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package dictionary;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Turns a word into the key used by every dictionary index.
+ *
+ * Keys are case-folded and accent-folded without depending on the default
+ * locale, so "Café", "CAFE" and "cafe" are the same word, and a Turkish
+ * default locale does not turn "I" into a dotless "ı". Only accents on Latin
+ * letters are folded: in other scripts combining marks tell words apart
+ * (Devanagari vowel signs, Hebrew and Arabic vowel points) and are kept.
+ *
+ * Plain lower-case ASCII, by far the common case, is returned as the same
+ * String instance without allocating; upper-case ASCII takes one copy; only
+ * input with non-ASCII characters goes through Unicode normalization.
+ */
+public final class KeyNormalizer {
+
+    private KeyNormalizer() { }
+
+    /**
+     * Returns the dictionary key for a word.
+     *
+     * @param word word in any case and accenting (not null)
+     * @return normalized key; the same instance if already normalized
+     */
+    public static String normalize(String word) {
+        int n = word.length();
+        int i = 0;
+        while (i < n) {
+            char c = word.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) break;
+            i++;
+        }
+        if (i == n) return word;
+
+        // upper-case ASCII only: lower it in one pass
+        char[] chars = null;
+        for (int j = i; j < n; j++) {
+            char c = word.charAt(j);
+            if (c >= 0x80) return fold(word);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) chars = word.toCharArray();
+                chars[j] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Full Unicode path: strip accents from Latin letters (decompose, drop
+     * the combining marks that follow a Latin letter, recompose) and apply
+     * locale-independent case folding.
+     */
+    private static String fold(String word) {
+        String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean latin = false;
+        for (int i = 0; i < decomposed.length(); ) {
+            int c = decomposed.codePointAt(i);
+            i += Character.charCount(c);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                latin = Character.UnicodeScript.of(c) == Character.UnicodeScript.LATIN;
+            } else if (latin) {
+                continue;
+            }
+            sb.appendCodePoint(c);
+        }
+        // upper then lower folds special cases such as "ß" -> "ss" and final sigma
+        String folded = sb.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        return Normalizer.normalize(folded, Normalizer.Form.NFC);
+    }
+}
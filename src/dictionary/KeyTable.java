@@ -0,0 +1,271 @@
+package dictionary;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from String keys to primitive int values.
+ *
+ * Replaces {@code HashMap<String, Integer>} where values are counts or
+ * offsets: there is no boxed value and no entry object per mapping, just
+ * three parallel arrays (keys, cached hashes, values). Collisions are
+ * resolved by linear probing, and the cached hash is compared before
+ * {@code equals}, so a lookup usually touches one key.
+ * {@link #increment} finds or inserts a key and updates its value in a
+ * single probe sequence.
+ *
+ * Not thread-safe; callers synchronize when the table is shared.
+ */
+final class KeyTable {
+
+    /** Resize once the table is this full */
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] values;
+    private int size;
+    private int threshold;
+
+    /**
+     * Creates a table sized for an expected number of keys.
+     *
+     * @param expected number of keys to hold without resizing
+     */
+    KeyTable(int expected) {
+        int cap = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) * 2 - 1);
+        allocate(cap);
+    }
+
+    /**
+     * Creates an empty table.
+     */
+    KeyTable() {
+        this(16);
+    }
+
+    /**
+     * @return number of keys
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key key to look up
+     * @return true if the key is present
+     */
+    boolean containsKey(String key) {
+        return slot(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Returns the value for a key.
+     *
+     * @param key     key to look up
+     * @param missing value returned when the key is absent
+     * @return the stored value or {@code missing}
+     */
+    int get(String key, int missing) {
+        int i = slot(key, hash(key));
+        return i >= 0 ? values[i] : missing;
+    }
+
+    /**
+     * Stores a value, replacing any previous value for the key.
+     *
+     * @param key   key (not null)
+     * @param value value to store
+     * @return true if the key was not present before
+     */
+    boolean put(String key, int value) {
+        int before = size;
+        int i = insertionSlot(key, hash(key));
+        values[i] = value;
+        return size != before;
+    }
+
+    /**
+     * Adds to the value of a key, inserting it with value {@code delta}
+     * if absent.
+     *
+     * @param key   key (not null)
+     * @param delta amount to add
+     * @return the new value
+     */
+    int increment(String key, int delta) {
+        int h = hash(key);
+        int i = insertionSlot(key, h);
+        return values[i] += delta;
+    }
+
+    /**
+     * Adds to the value of the key spelled by a char range, inserting it
+     * with value {@code delta} if absent. A String is only allocated when
+     * the key is new, so counting repeated tokens from a reused buffer does
+     * not allocate.
+     *
+     * @param chars buffer holding the key
+     * @param len   number of chars of the key, starting at index 0
+     * @param delta amount to add
+     * @return the new value
+     */
+    int increment(char[] chars, int len, int delta) {
+        int h = 0;
+        for (int i = 0; i < len; i++) h = 31 * h + chars[i]; // same as String.hashCode
+        h = spread(h);
+
+        int mask = keys.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) break;
+            if (hashes[i] == h && equals(k, chars, len)) return values[i] += delta;
+        }
+        String key = new String(chars, 0, len);
+        return values[insertionSlot(key, h)] += delta;
+    }
+
+    /**
+     * Adds every count of another table to this one.
+     *
+     * @param other table to merge in (unchanged)
+     */
+    void addAll(KeyTable other) {
+        for (int j = 0; j < other.keys.length; j++) {
+            String k = other.keys[j];
+            if (k != null) values[insertionSlot(k, other.hashes[j])] += other.values[j];
+        }
+    }
+
+    /**
+     * Removes a key. Later entries of the same probe run are shifted back so
+     * lookups never need tombstones.
+     *
+     * @param key key to remove
+     * @return true if the key was present
+     */
+    boolean remove(String key) {
+        int i = slot(key, hash(key));
+        if (i < 0) return false;
+
+        int mask = keys.length - 1;
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == null) break;
+            int home = hashes[j] & mask;
+            // move j into the hole unless its home slot lies cyclically in (hole, j]
+            boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (!stays) {
+                keys[hole] = keys[j];
+                hashes[hole] = hashes[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = 0;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every key, keeping the current capacity.
+     */
+    void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Receives each mapping of the table.
+     */
+    interface EntryConsumer {
+        void accept(String key, int value);
+    }
+
+    /**
+     * Visits every mapping, in no particular order.
+     *
+     * @param action receives each key and value
+     */
+    void forEach(EntryConsumer action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) action.accept(keys[i], values[i]);
+        }
+    }
+
+    private int slot(String key, int h) {
+        int mask = keys.length - 1;
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) return -1;
+            if (hashes[i] == h && (k == key || k.equals(key))) return i;
+        }
+    }
+
+    private int insertionSlot(String key, int h) {
+        int mask = keys.length - 1;
+        int i = h & mask;
+        for (; ; i = (i + 1) & mask) {
+            String k = keys[i];
+            if (k == null) break;
+            if (hashes[i] == h && (k == key || k.equals(key))) return i;
+        }
+
+        if (size >= threshold) {
+            grow();
+            return insertionSlot(key, h);
+        }
+        keys[i] = key;
+        hashes[i] = h;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = oldHashes[j] & mask;
+            while (keys[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            hashes[i] = oldHashes[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Spreads String.hashCode (cached by String) so linear probing does not
+     * cluster on similar words.
+     */
+    private static int hash(String key) {
+        return spread(key.hashCode());
+    }
+
+    private static int spread(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(String key, char[] chars, int len) {
+        if (key.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (key.charAt(i) != chars[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,188 @@
+package dictionary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Read-only view of a dictionary file that keeps only the words in memory.
+ *
+ * Opening the store scans the memory-mapped file once and records, for each
+ * normalized word, the byte offset of its record. The full
+ * {@link dictionaryEntry} (definition, example, synonyms) is decoded the first
+ * time it is requested and kept in a size-bounded LRU cache, so startup cost
+ * and resident heap grow with the number of words rather than the size of
+ * their bodies.
+ *
+ * The store is a read-only {@link DictionarySource}: edits and deletions are
+ * recorded in a writable layer mounted above it, so one mapping of a large
+ * shared file can sit under any number of small overlays.
+ */
+public class LazyEntryStore implements DictionarySource {
+
+    /** Default number of decoded entries kept in memory */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /** Number of words handed to the batch callback at a time */
+    private static final int KEY_BATCH = 2000;
+
+    private final Path file;
+    private final String name;
+    private final ByteBuffer data;
+    private final KeyTable offsets;
+    private final String[] sortedKeys;
+    private final Map<String, dictionaryEntry> cache;
+
+    private LazyEntryStore(Path file, ByteBuffer data, KeyTable offsets, int cacheSize) {
+        this.file = file;
+        this.name = file.getFileName().toString();
+        this.data = data;
+        this.offsets = offsets;
+        this.sortedKeys = new String[offsets.size()];
+        int[] n = new int[1];
+        offsets.forEach((key, offset) -> sortedKeys[n[0]++] = key);
+        Arrays.sort(this.sortedKeys);
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, dictionaryEntry> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Opens a dictionary file in lazy mode.
+     *
+     * @param path    file written by {@link DictionaryService#saveToFile}
+     * @param onBatch receives normalized words in batches as they are
+     *                indexed (may be null)
+     * @return store indexing every record of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static LazyEntryStore open(Path path, Consumer<List<String>> onBatch) throws IOException {
+        return open(path, onBatch, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Opens a dictionary file in lazy mode with a given cache size.
+     *
+     * @param path      file written by {@link DictionaryService#saveToFile}
+     * @param onBatch   receives normalized words in batches as they are
+     *                  indexed (may be null)
+     * @param cacheSize number of decoded entries kept in memory
+     * @return store indexing every record of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static LazyEntryStore open(Path path, Consumer<List<String>> onBatch, int cacheSize) throws IOException {
+        ByteBuffer data = RecordCodec.map(path);
+        KeyTable offsets = new KeyTable(Math.max(16, data.limit() / 64));
+        List<String> batch = new ArrayList<>(KEY_BATCH);
+
+        RecordCodec.read(data, false, r -> {
+            String key = KeyNormalizer.normalize(r.word());
+            if (key.isEmpty()) return;
+            if (offsets.put(key, r.offset()) && onBatch != null) {
+                batch.add(key);
+                if (batch.size() == KEY_BATCH) {
+                    onBatch.accept(new ArrayList<>(batch));
+                    batch.clear();
+                }
+            }
+        });
+        if (onBatch != null && !batch.isEmpty()) onBatch.accept(batch);
+
+        return new LazyEntryStore(path, data, offsets, cacheSize);
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the file this store maps; it stays mapped until the store is
+     * garbage collected.
+     *
+     * @return mapped file
+     */
+    public Path file() {
+        return file;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return offsets.containsKey(key);
+    }
+
+    /**
+     * Returns the entry for a word, decoding and caching it on first use.
+     *
+     * @param key normalized word
+     * @return the entry, or null if missing
+     */
+    @Override
+    public dictionaryEntry get(String key) {
+        synchronized (cache) {
+            dictionaryEntry e = cache.get(key);
+            if (e != null) return e;
+        }
+
+        dictionaryEntry e = read(key);
+        if (e != null) {
+            synchronized (cache) {
+                cache.put(key, e);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Decodes an entry without adding it to the cache.
+     * Used for bulk passes such as saving, which would otherwise flush the
+     * cache of recently viewed words.
+     *
+     * @param key normalized word
+     * @return the entry, or null if missing
+     */
+    @Override
+    public dictionaryEntry read(String key) {
+        int offset = offsets.get(key, -1);
+        return offset < 0 ? null : RecordCodec.decodeAt(data, offset);
+    }
+
+    @Override
+    public int size() {
+        return sortedKeys.length;
+    }
+
+    /**
+     * Iterates the words starting with a prefix, in sorted order.
+     * Uses a binary search over the sorted key array.
+     *
+     * @param prefix normalized prefix
+     * @return sorted iterator over matching words
+     */
+    @Override
+    public Iterator<String> keys(String prefix) {
+        int from = Arrays.binarySearch(sortedKeys, prefix);
+        if (from < 0) from = -from - 1;
+        int start = from;
+
+        return new Iterator<>() {
+            private int i = start;
+
+            @Override
+            public boolean hasNext() {
+                return i < sortedKeys.length && sortedKeys[i].startsWith(prefix);
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return sortedKeys[i++];
+            }
+        };
+    }
+}
@@ -11,7 +11,31 @@ public class Main {
 
     private static final Path DICT_FILE =
             APP_DIR.resolve("dictionary.txt");
+
+    /** Segment directory saved incrementally; replaces DICT_FILE once written */
+    private static final Path SEGMENTS_DIR =
+            APP_DIR.resolve("dictionary");
+
+    /** Set -Ddictionary.eagerLoad=true to decode every entry at startup */
+    private static final boolean EAGER_LOAD = Boolean.getBoolean("dictionary.eagerLoad");
+
+    /**
+     * Set -Ddictionary.replication.listen=PORT to serve this instance's
+     * changes to replicas, or -Ddictionary.replication.primary=HOST:PORT to
+     * run as a read-only replica of another instance (no local load and no saving).
+     * The primary listens on loopback only unless -Ddictionary.replication.bind
+     * names another address; replication is unauthenticated, so anyone who
+     * can reach that address can read the whole dictionary
+     */
+    private static final Integer REPLICATION_PORT = Integer.getInteger("dictionary.replication.listen");
+    private static final String REPLICA_OF = System.getProperty("dictionary.replication.primary");
+
+    /** Set -Ddictionary.trace=FILE to record the session for WorkloadReplayer */
+    private static final String TRACE = System.getProperty("dictionary.trace");
+
     public static void main(String[] args) {
+        long start = System.nanoTime();
+
         SwingUtilities.invokeLater(() -> {
             try {
                 UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -20,42 +44,120 @@ public class Main {
             // Create MVC pieces
             FlatDarkLaf.setup();
             DictionaryPanel view = new DictionaryPanel();
-            DictionaryService service = new DictionaryService();
-            System.out.println("Saving/Loading from: " + DICT_FILE.toAbsolutePath());
-
+            DictionaryService service = newService();
+            Path source = SegmentedStore.exists(SEGMENTS_DIR) ? SEGMENTS_DIR : DICT_FILE;
+            System.out.println("Loading from: " + source.toAbsolutePath());
+            System.out.println("Saving to: " + SEGMENTS_DIR.toAbsolutePath());
 
             try {
                 Files.createDirectories(APP_DIR);
-                service.loadFromFile(DICT_FILE);
             } catch (Exception e) {
-                // optional: show error popup instead
                 System.err.println("Load failed: " + e.getMessage());
             }
-            new DictionaryController(view, service);
+            DictionaryController controller = new DictionaryController(view, service);
 
             // Build window
             JFrame frame = new JFrame("Dictionary");
             frame.setContentPane(view.getRoot());
             frame.pack();
             frame.setLocationRelativeTo(null); // center
-            frame.setVisible(true);
 
+            if (REPLICA_OF != null) {
+                // the primary streams a snapshot, then its changes; nothing is saved here
+                controller.setReadOnly(true);
+                ReplicaClient replica = new ReplicaClient(service, REPLICA_OF,
+                        msg -> SwingUtilities.invokeLater(() -> controller.onReplicated(msg)));
+                frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                    @Override
+                    public void windowClosing(java.awt.event.WindowEvent e) {
+                        if (!view.confirmExit()) return;
+                        replica.close();
+                        closeTrace(service);
+                        frame.dispose();
+                    }
+                });
+                frame.setVisible(true);
+                return;
+            }
+
+            // Show the window first, then stream the dictionary in behind it
+            DictionaryLoader loader = new DictionaryLoader(source, service, controller, start, !EAGER_LOAD);
+
+            // Replicas are held until the load has finished, so their snapshot is complete
+            ReplicationServer primary = null;
+            if (REPLICATION_PORT != null) {
+                try {
+                    primary = new ReplicationServer(service, REPLICATION_PORT,
+                            Integer.getInteger("dictionary.replication.logSize", 100_000),
+                            () -> loader.isDone() && !controller.isLoading(),
+                            msg -> SwingUtilities.invokeLater(() -> view.setStatus(msg)));
+                    view.setStatus("Serving replicas on " + primary.address());
+                } catch (Exception e) {
+                    System.err.println("Replication disabled: " + e.getMessage());
+                }
+            }
+            ReplicationServer replication = primary;
+
+            // Save edits in the background; never while the dictionary is still loading or after its load failed
+            AutosaveService autosave = new AutosaveService(service, SEGMENTS_DIR,
+                    controller::canSave,
+                    msg -> SwingUtilities.invokeLater(() -> view.setStatus(msg)));
 
             frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowOpened(java.awt.event.WindowEvent e) {
+                    long ms = (System.nanoTime() - start) / 1_000_000;
+                    System.out.println("First paint after " + ms + " ms");
+                    loader.start();
+                }
+
                 @Override
                 public void windowClosing(java.awt.event.WindowEvent e) {
                     if (!view.confirmExit()) return;
 
+                    if (!controller.canSave()) {
+                        // saving now would truncate the dictionary to what is loaded so far
+                        String why = controller.isLoading() ? "The dictionary is still loading."
+                                : "The dictionary failed to load (" + controller.getLoadFailure() + ").";
+                        if (!view.confirm(why + " Exit without saving?")) return;
+                        loader.cancel(true);
+                        autosave.close();
+                        if (replication != null) replication.close();
+                        closeTrace(service);
+                        frame.dispose();
+                        return;
+                    }
+
+                    // waits for a running autosave, then saves whatever is left
                     try {
-                        service.saveToFile(DICT_FILE);
+                        service.saveSegments(SEGMENTS_DIR);
                     } catch (Exception ex) {
-                        view.showError("Save failed: " + ex.getMessage());
-                        return; // up to you: still exit or not
+                        if (!view.confirm("Save failed: " + ex.getMessage() + "\nExit without saving?")) return;
                     }
 
+                    autosave.close();
+                    if (replication != null) replication.close();
+                    closeTrace(service);
                     frame.dispose();
                 }
             });
+            frame.setVisible(true);
         });
     }
-}
\ No newline at end of file
+
+    /** Plain service, or one recording a workload trace if requested */
+    private static DictionaryService newService() {
+        if (TRACE == null) return new DictionaryService();
+        try {
+            System.out.println("Recording workload to: " + Path.of(TRACE).toAbsolutePath());
+            return new RecordingService(Path.of(TRACE));
+        } catch (Exception e) {
+            System.err.println("Workload recording disabled: " + e.getMessage());
+            return new DictionaryService();
+        }
+    }
+
+    private static void closeTrace(DictionaryService service) {
+        if (service instanceof RecordingService recorder) recorder.close();
+    }
+}
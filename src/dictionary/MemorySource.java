@@ -0,0 +1,106 @@
+package dictionary;
+
+import java.util.Iterator;
+
+/**
+ * Writable, heap-backed dictionary layer.
+ *
+ * Used for the user's own additions and edits on top of read-only sources,
+ * and as the only layer when nothing else is mounted. Entries and tombstones
+ * live in {@link PersistentSortedMap}s behind a single volatile reference:
+ * writers build a new version and publish it, readers never lock, and
+ * {@link #snapshot()} is O(1) because it just captures the current version.
+ */
+public class MemorySource implements DictionarySource {
+
+    /** One immutable version of the layer */
+    private record State(PersistentSortedMap<dictionaryEntry> entries,
+                         PersistentSortedMap<Boolean> tombstones) { }
+
+    private final String name;
+    private final boolean writable;
+    private volatile State state;
+
+    /**
+     * Creates an empty layer.
+     *
+     * @param name layer name
+     */
+    public MemorySource(String name) {
+        this(name, true, new State(PersistentSortedMap.empty(), PersistentSortedMap.empty()));
+    }
+
+    private MemorySource(String name, boolean writable, State state) {
+        this.name = name;
+        this.writable = writable;
+        this.state = state;
+    }
+
+    @Override
+    public String name() { return name; }
+
+    @Override
+    public boolean isWritable() { return writable; }
+
+    @Override
+    public dictionaryEntry get(String key) { return state.entries().get(key); }
+
+    @Override
+    public boolean contains(String key) { return state.entries().containsKey(key); }
+
+    @Override
+    public boolean isDeleted(String key) { return state.tombstones().containsKey(key); }
+
+    @Override
+    public Iterator<String> keys(String prefix) { return state.entries().keys(prefix); }
+
+    @Override
+    public Iterator<String> deletedKeys() { return state.tombstones().keys(""); }
+
+    @Override
+    public int size() { return state.entries().size(); }
+
+    @Override
+    public DictionarySource snapshot() {
+        return writable ? new MemorySource(name, false, state) : this;
+    }
+
+    @Override
+    public void put(dictionaryEntry entry) {
+        checkWritable();
+        String key = entry.getKey();
+        synchronized (this) {
+            State s = state;
+            state = new State(s.entries().put(key, entry), s.tombstones().remove(key));
+        }
+    }
+
+    @Override
+    public void putAll(java.util.Collection<dictionaryEntry> entries) {
+        checkWritable();
+        synchronized (this) {
+            PersistentSortedMap<dictionaryEntry> e = state.entries();
+            PersistentSortedMap<Boolean> t = state.tombstones();
+            for (dictionaryEntry entry : entries) {
+                String key = entry.getKey();
+                e = e.put(key, entry);
+                t = t.remove(key);
+            }
+            state = new State(e, t);
+        }
+    }
+
+    @Override
+    public void remove(String key, boolean tombstone) {
+        checkWritable();
+        synchronized (this) {
+            State s = state;
+            state = new State(s.entries().remove(key),
+                    tombstone ? s.tombstones().put(key, Boolean.TRUE) : s.tombstones().remove(key));
+        }
+    }
+
+    private void checkWritable() {
+        if (!writable) throw new UnsupportedOperationException(name + " is a read-only snapshot");
+    }
+}
@@ -0,0 +1,290 @@
+package dictionary;
+
+import java.util.*;
+
+/**
+ * Secondary indexes over the dictionary words for wildcard search.
+ *
+ * Patterns use {@code *} for any run of characters and {@code ?} for exactly
+ * one character, and must match the whole word ({@code *tion}, {@code *graph*},
+ * {@code c?t}). Candidates are narrowed with the cheapest applicable index
+ * before each one is checked against the pattern:
+ * - patterns without {@code *} have a fixed length and use a positional index
+ *   of (length, position, character) posting lists (crossword queries)
+ * - a literal suffix uses a sorted index of reversed words
+ * - otherwise the literal fragments are split into trigrams (with start and
+ *   end anchors) and the trigram posting lists are intersected
+ *
+ * Words get increasing integer ids, so every posting list stays sorted by
+ * construction. Removed words leave a dead id behind that is skipped when
+ * results are read; once dead ids outnumber live ones the index is rebuilt.
+ */
+final class PatternIndex {
+
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final TreeSet<String> reversed = new TreeSet<>();
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+    private final Map<Long, IntList> positions = new HashMap<>();
+    private final Map<Integer, IntList> lengths = new HashMap<>();
+    private int dead;
+
+    /**
+     * Builds the index over an initial set of words.
+     *
+     * @param keys normalized words
+     */
+    PatternIndex(Collection<String> keys) {
+        for (String k : keys) add(k);
+    }
+
+    /**
+     * @param pattern filter text
+     * @return true if the text contains a wildcard
+     */
+    static boolean isPattern(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+
+    /**
+     * Adds a word to every index.
+     *
+     * @param key normalized word
+     */
+    synchronized void add(String key) {
+        if (ids.containsKey(key)) return;
+        int id = words.size();
+        words.add(key);
+        ids.put(key, id);
+        reversed.add(reverse(key));
+
+        String padded = START + key + END;
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.computeIfAbsent(trigram(padded, i), t -> new IntList()).add(id);
+        }
+        int len = key.length();
+        for (int i = 0; i < len; i++) {
+            positions.computeIfAbsent(position(len, i, key.charAt(i)), p -> new IntList()).add(id);
+        }
+        lengths.computeIfAbsent(len, l -> new IntList()).add(id);
+    }
+
+    /**
+     * Removes a word from every index.
+     *
+     * @param key normalized word
+     */
+    synchronized void remove(String key) {
+        Integer id = ids.remove(key);
+        if (id == null) return;
+        words.set(id, null);
+        reversed.remove(reverse(key));
+        if (++dead > ids.size() && dead > 1024) rebuild();
+    }
+
+    /**
+     * Drops dead ids by re-indexing the live words from scratch.
+     */
+    private void rebuild() {
+        List<String> live = new ArrayList<>(live());
+        words.clear();
+        ids.clear();
+        reversed.clear();
+        trigrams.clear();
+        positions.clear();
+        lengths.clear();
+        dead = 0;
+        for (String k : live) add(k);
+    }
+
+    /**
+     * Finds every word matching a wildcard pattern.
+     *
+     * @param pattern pattern in any case
+     * @return sorted list of matching words
+     */
+    synchronized List<String> search(String pattern) {
+        String p = KeyNormalizer.normalize(pattern);
+        List<String> results = new ArrayList<>();
+
+        for (String w : candidates(p)) {
+            if (matches(p, w)) results.add(w);
+        }
+        Collections.sort(results);
+        return results;
+    }
+
+    /**
+     * Picks the smallest candidate set the indexes can produce.
+     */
+    private Collection<String> candidates(String p) {
+        if (p.indexOf('*') < 0) return fixedLength(p);
+
+        int lastStar = p.lastIndexOf('*');
+        String suffix = p.substring(lastStar + 1);
+        boolean literalSuffix = !suffix.isEmpty() && suffix.indexOf('?') < 0;
+
+        // "*tion": the reversed-word index gives the exact answer
+        if (literalSuffix && lastStar == 0) return bySuffix(suffix);
+
+        List<IntList> lists = new ArrayList<>();
+
+        // trigram posting lists for every literal fragment, anchored at the ends
+        int i = 0;
+        while (i < p.length()) {
+            while (i < p.length() && isWild(p.charAt(i))) i++;
+            int start = i;
+            while (i < p.length() && !isWild(p.charAt(i))) i++;
+            if (start == i) continue;
+
+            String frag = (start == 0 ? String.valueOf(START) : "")
+                    + p.substring(start, i)
+                    + (i == p.length() ? String.valueOf(END) : "");
+            for (int j = 0; j + 3 <= frag.length(); j++) {
+                IntList list = trigrams.get(trigram(frag, j));
+                if (list == null) return List.of();
+                lists.add(list);
+            }
+        }
+
+        if (lists.isEmpty()) return literalSuffix ? bySuffix(suffix) : live();
+        return ids(intersect(lists));
+    }
+
+    /**
+     * Candidates for a pattern with no '*': intersect the positional lists
+     * of every literal character, or take the whole length bucket.
+     */
+    private Collection<String> fixedLength(String p) {
+        int len = p.length();
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i < len; i++) {
+            char c = p.charAt(i);
+            if (c == '?') continue;
+            IntList list = positions.get(position(len, i, c));
+            if (list == null) return List.of();
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            IntList bucket = lengths.get(len);
+            return bucket == null ? List.of() : ids(bucket);
+        }
+        return ids(intersect(lists));
+    }
+
+    /**
+     * Candidates ending with a literal suffix, from the reversed-word index.
+     */
+    private Collection<String> bySuffix(String suffix) {
+        String from = reverse(suffix);
+        List<String> out = new ArrayList<>();
+        for (String r : reversed.tailSet(from, true)) {
+            if (!r.startsWith(from)) break;
+            out.add(reverse(r));
+        }
+        return out;
+    }
+
+    /**
+     * Intersects sorted posting lists, smallest first.
+     */
+    private static IntList intersect(List<IntList> lists) {
+        lists.sort(Comparator.comparingInt(l -> l.size));
+        IntList acc = lists.get(0);
+        for (int k = 1; k < lists.size() && acc.size > 0; k++) {
+            IntList next = lists.get(k);
+            IntList out = new IntList();
+            int a = 0;
+            int b = 0;
+            while (a < acc.size && b < next.size) {
+                int x = acc.data[a];
+                int y = next.data[b];
+                if (x == y) {
+                    out.add(x);
+                    a++;
+                    b++;
+                } else if (x < y) {
+                    a++;
+                } else {
+                    b++;
+                }
+            }
+            acc = out;
+        }
+        return acc;
+    }
+
+    private Collection<String> ids(IntList list) {
+        List<String> out = new ArrayList<>(list.size);
+        for (int k = 0; k < list.size; k++) {
+            String w = words.get(list.data[k]);
+            if (w != null) out.add(w);
+        }
+        return out;
+    }
+
+    private Collection<String> live() {
+        List<String> out = new ArrayList<>(ids.size());
+        for (String w : words) {
+            if (w != null) out.add(w);
+        }
+        return out;
+    }
+
+    /**
+     * Glob match of the whole word: '*' is any run, '?' is one character.
+     */
+    static boolean matches(String p, String w) {
+        int pi = 0;
+        int wi = 0;
+        int star = -1;
+        int mark = 0;
+        while (wi < w.length()) {
+            if (pi < p.length() && (p.charAt(pi) == '?' || p.charAt(pi) == w.charAt(wi))) {
+                pi++;
+                wi++;
+            } else if (pi < p.length() && p.charAt(pi) == '*') {
+                star = pi++;
+                mark = wi;
+            } else if (star >= 0) {
+                pi = star + 1;
+                wi = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (pi < p.length() && p.charAt(pi) == '*') pi++;
+        return pi == p.length();
+    }
+
+    private static boolean isWild(char c) {
+        return c == '*' || c == '?';
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private static long position(int len, int pos, char c) {
+        return ((long) len << 40) | ((long) pos << 20) | c;
+    }
+
+    private static String reverse(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+
+    /** Growable, append-only list of ints used as a posting list */
+    private static final class IntList {
+        int[] data = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size > 0 && data[size - 1] == v) return; // repeated inside one word
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = v;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package dictionary;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted map from String keys to values, with structural sharing.
+ *
+ * Implemented as an AVL tree with path copying: {@link #put} and
+ * {@link #remove} return a new map that shares every untouched subtree with
+ * the old one, so an update allocates O(log n) nodes and any number of older
+ * versions can be read concurrently without locks. Versions that nobody
+ * references any more are simply garbage collected.
+ *
+ * @param <V> value type
+ */
+final class PersistentSortedMap<V> {
+
+    private static final PersistentSortedMap<?> EMPTY = new PersistentSortedMap<>(null);
+
+    private final Node<V> root;
+
+    private PersistentSortedMap(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * @param <V> value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentSortedMap<V> empty() {
+        return (PersistentSortedMap<V>) EMPTY;
+    }
+
+    /**
+     * @return number of keys
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * @param key key to look up
+     * @return the value, or null if absent
+     */
+    V get(String key) {
+        Node<V> n = root;
+        while (n != null) {
+            int cmp = key.compareTo(n.key);
+            if (cmp == 0) return n.value;
+            n = cmp < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /**
+     * @param key key to look up
+     * @return true if the key is present
+     */
+    boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the key bound to the value.
+     *
+     * @param key   key to add or replace
+     * @param value new value (not null)
+     * @return the updated map; this map is unchanged
+     */
+    PersistentSortedMap<V> put(String key, V value) {
+        Node<V> r = put(root, key, value);
+        return r == root ? this : new PersistentSortedMap<>(r);
+    }
+
+    /**
+     * Returns a map without the key.
+     *
+     * @param key key to remove
+     * @return the updated map, or this map if the key was absent
+     */
+    PersistentSortedMap<V> remove(String key) {
+        Node<V> r = remove(root, key);
+        return r == root ? this : new PersistentSortedMap<>(r);
+    }
+
+    /**
+     * Iterates keys starting with a prefix, in sorted order.
+     *
+     * @param prefix key prefix ("" for every key)
+     * @return sorted iterator over matching keys
+     */
+    Iterator<String> keys(String prefix) {
+        return new KeyIterator<>(root, prefix);
+    }
+
+    // ----------------------------
+    // AVL helpers
+    // ----------------------------
+
+    private static final class Node<V> {
+        final String key;
+        final V value;
+        final Node<V> left;
+        final Node<V> right;
+        final int height;
+        final int size;
+
+        Node(String key, V value, Node<V> left, Node<V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static int height(Node<?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static <V> Node<V> put(Node<V> n, String key, V value) {
+        if (n == null) return new Node<>(key, value, null, null);
+
+        int cmp = key.compareTo(n.key);
+        if (cmp == 0) {
+            return n.value == value ? n : new Node<>(key, value, n.left, n.right);
+        }
+        if (cmp < 0) {
+            Node<V> l = put(n.left, key, value);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        Node<V> r = put(n.right, key, value);
+        return r == n.right ? n : balance(n.key, n.value, n.left, r);
+    }
+
+    private static <V> Node<V> remove(Node<V> n, String key) {
+        if (n == null) return null;
+
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0) {
+            Node<V> l = remove(n.left, key);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        if (cmp > 0) {
+            Node<V> r = remove(n.right, key);
+            return r == n.right ? n : balance(n.key, n.value, n.left, r);
+        }
+
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+
+        Node<V> min = n.right;
+        while (min.left != null) min = min.left;
+        return balance(min.key, min.value, n.left, removeMin(n.right));
+    }
+
+    private static <V> Node<V> removeMin(Node<V> n) {
+        if (n.left == null) return n.right;
+        return balance(n.key, n.value, removeMin(n.left), n.right);
+    }
+
+    private static <V> Node<V> balance(String key, V value, Node<V> l, Node<V> r) {
+        int diff = height(l) - height(r);
+        if (diff > 1) {
+            if (height(l.left) >= height(l.right)) {
+                return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+            }
+            Node<V> lr = l.right;
+            return new Node<>(lr.key, lr.value,
+                    new Node<>(l.key, l.value, l.left, lr.left),
+                    new Node<>(key, value, lr.right, r));
+        }
+        if (diff < -1) {
+            if (height(r.right) >= height(r.left)) {
+                return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+            }
+            Node<V> rl = r.left;
+            return new Node<>(rl.key, rl.value,
+                    new Node<>(key, value, l, rl.left),
+                    new Node<>(r.key, r.value, rl.right, r.right));
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /**
+     * In-order iterator starting at the first key not less than the prefix.
+     */
+    private static final class KeyIterator<V> implements Iterator<String> {
+        private final Deque<Node<V>> stack = new ArrayDeque<>();
+        private final String prefix;
+
+        KeyIterator(Node<V> root, String prefix) {
+            this.prefix = prefix;
+            Node<V> n = root;
+            while (n != null) {
+                if (n.key.compareTo(prefix) >= 0) {
+                    stack.push(n);
+                    n = n.left;
+                } else {
+                    n = n.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty() && stack.peek().key.startsWith(prefix);
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Node<V> n = stack.pop();
+            for (Node<V> c = n.right; c != null; c = c.left) stack.push(c);
+            return n.key;
+        }
+    }
+}
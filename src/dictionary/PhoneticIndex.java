@@ -0,0 +1,188 @@
+package dictionary;
+
+import java.util.*;
+
+/**
+ * "Sounds like" index over the dictionary words.
+ *
+ * Each word is reduced to a Metaphone key when it is added, and words are
+ * grouped by key, so finding the sound-alikes (homophones) of a query is one
+ * key computation plus one hash lookup, with no scan of the dictionary.
+ *
+ * The key is computed from the spelling of the word rather than the free-form
+ * pronunciation field: pronunciations are not written in a consistent
+ * notation, and lazily loaded entries have not decoded theirs yet.
+ */
+final class PhoneticIndex {
+
+    /** Longest key kept; longer words are grouped by their first sounds */
+    private static final int MAX_KEY = 8;
+
+    private final Map<String, NavigableSet<String>> groups = new HashMap<>();
+    private final Map<String, String> keys = new HashMap<>();
+
+    /**
+     * Builds the index over an initial set of words.
+     *
+     * @param words normalized words
+     */
+    PhoneticIndex(Collection<String> words) {
+        for (String w : words) add(w);
+    }
+
+    /**
+     * @param word normalized word
+     */
+    synchronized void add(String word) {
+        if (keys.containsKey(word)) return;
+        String key = encode(word);
+        if (key.isEmpty()) return;
+        keys.put(word, key);
+        groups.computeIfAbsent(key, k -> new TreeSet<>()).add(word);
+    }
+
+    /**
+     * @param word normalized word
+     */
+    synchronized void remove(String word) {
+        String key = keys.remove(word);
+        if (key == null) return;
+        NavigableSet<String> group = groups.get(key);
+        group.remove(word);
+        if (group.isEmpty()) groups.remove(key);
+    }
+
+    /**
+     * Returns the words that sound like a query, in sorted order.
+     *
+     * @param word query word in any case (need not be in the dictionary)
+     * @return sorted sound-alikes, possibly including the word itself
+     */
+    synchronized List<String> soundsLike(String word) {
+        NavigableSet<String> group = groups.get(encode(KeyNormalizer.normalize(word)));
+        return group == null ? List.of() : new ArrayList<>(group);
+    }
+
+    /**
+     * Computes the Metaphone key of a word (Lawrence Philips' original
+     * rules). Non-letters are ignored.
+     *
+     * @param word word in any case
+     * @return upper-case phonetic key, "0" standing for "th"
+     */
+    static String encode(String word) {
+        StringBuilder letters = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toUpperCase(word.charAt(i));
+            if (c >= 'A' && c <= 'Z') letters.append(c);
+        }
+        String w = letters.toString();
+        if (w.isEmpty()) return "";
+
+        StringBuilder out = new StringBuilder(MAX_KEY);
+        int i = 0;
+
+        // initial exceptions
+        if (w.startsWith("AE") || w.startsWith("GN") || w.startsWith("KN")
+                || w.startsWith("PN") || w.startsWith("WR")) {
+            i = 1;
+        } else if (w.charAt(0) == 'X') {
+            out.append('S');
+            i = 1;
+        } else if (w.startsWith("WH")) {
+            out.append('W');
+            i = 2;
+        }
+
+        for (; i < w.length() && out.length() < MAX_KEY; i++) {
+            char c = w.charAt(i);
+            if (c != 'C' && i > 0 && w.charAt(i - 1) == c) continue;
+
+            switch (c) {
+                case 'A', 'E', 'I', 'O', 'U' -> {
+                    if (i == 0) out.append(c);
+                }
+                case 'B' -> {
+                    if (!(i == w.length() - 1 && at(w, i - 1) == 'M')) out.append('B');
+                }
+                case 'C' -> {
+                    if (at(w, i - 1) == 'S' && isFrontVowel(at(w, i + 1))) break;
+                    if (at(w, i + 1) == 'I' && at(w, i + 2) == 'A') out.append('X');
+                    else if (at(w, i + 1) == 'H') {
+                        out.append(at(w, i - 1) == 'S' ? 'K' : 'X');
+                        i++;
+                    } else if (isFrontVowel(at(w, i + 1))) out.append('S');
+                    else out.append('K');
+                }
+                case 'D' -> {
+                    if (at(w, i + 1) == 'G' && isFrontVowel(at(w, i + 2))) {
+                        out.append('J');
+                        i += 2;
+                    } else {
+                        out.append('T');
+                    }
+                }
+                case 'G' -> {
+                    if (at(w, i + 1) == 'H' && i + 2 < w.length() && !isVowel(at(w, i + 2))) break;
+                    if (at(w, i + 1) == 'N' && (i + 2 == w.length()
+                            || (w.startsWith("ED", i + 2) && i + 4 == w.length()))) break;
+                    if (isFrontVowel(at(w, i + 1)) && at(w, i - 1) != 'G') out.append('J');
+                    else out.append('K');
+                }
+                case 'H' -> {
+                    if (isVowel(at(w, i + 1)) && "CSPTG".indexOf(at(w, i - 1)) < 0) out.append('H');
+                }
+                case 'K' -> {
+                    if (at(w, i - 1) != 'C') out.append('K');
+                }
+                case 'P' -> {
+                    if (at(w, i + 1) == 'H') {
+                        out.append('F');
+                        i++;
+                    } else {
+                        out.append('P');
+                    }
+                }
+                case 'Q' -> out.append('K');
+                case 'S' -> {
+                    if (at(w, i + 1) == 'H') {
+                        out.append('X');
+                        i++;
+                    } else if (at(w, i + 1) == 'I' && (at(w, i + 2) == 'O' || at(w, i + 2) == 'A')) {
+                        out.append('X');
+                    } else {
+                        out.append('S');
+                    }
+                }
+                case 'T' -> {
+                    if (at(w, i + 1) == 'I' && (at(w, i + 2) == 'O' || at(w, i + 2) == 'A')) out.append('X');
+                    else if (at(w, i + 1) == 'H') {
+                        out.append('0');
+                        i++;
+                    } else if (!(at(w, i + 1) == 'C' && at(w, i + 2) == 'H')) out.append('T');
+                }
+                case 'V' -> out.append('F');
+                case 'W', 'Y' -> {
+                    if (isVowel(at(w, i + 1))) out.append(c);
+                }
+                case 'X' -> out.append("KS");
+                case 'Z' -> out.append('S');
+                default -> out.append(c); // F J L M N R
+            }
+        }
+        if (out.length() > MAX_KEY) out.setLength(MAX_KEY);
+        return out.toString();
+    }
+
+    private static char at(String w, int i) {
+        return i >= 0 && i < w.length() ? w.charAt(i) : 0;
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'A' || c == 'E' || c == 'I' || c == 'O' || c == 'U';
+    }
+
+    private static boolean isFrontVowel(char c) {
+        return c == 'E' || c == 'I' || c == 'Y';
+    }
+}
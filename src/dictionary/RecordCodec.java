@@ -0,0 +1,497 @@
+package dictionary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reader and writer for the dictionary record format:
+ * <pre>word|pronunciation|definition|example|syn1, syn2, syn3</pre>
+ *
+ * Records are scanned directly in the UTF-8 bytes of a {@link ByteBuffer}.
+ * Because '|', ',' and line breaks are ASCII they can never appear inside a
+ * multi-byte UTF-8 sequence, so field boundaries are found with a single
+ * byte scan. No regex is used and no String is created until a field is
+ * actually requested from a {@link Record}.
+ *
+ * Two read modes are supported:
+ * - strict: one record per line, lines with fewer than 5 fields are skipped
+ *   (the format written by {@link Writer})
+ * - lenient: a record may be wrapped over several lines; it ends at the
+ *   first line break after its 4th '|' (hand-edited import files)
+ */
+final class RecordCodec {
+
+    /** Field separator */
+    static final byte SEP = '|';
+
+    /** Number of fields in one record */
+    static final int FIELDS = 5;
+
+    /** Size of the write buffer used by {@link Writer} */
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private RecordCodec() { }
+
+    /**
+     * Scans every record in the buffer and hands it to the sink.
+     * The same {@link Record} instance is reused for each call, so the
+     * sink must not keep a reference to it.
+     *
+     * @param buf     UTF-8 encoded records (read from position to limit)
+     * @param lenient true to allow records wrapped over several lines
+     * @param sink    receives each parsed record
+     */
+    static void read(ByteBuffer buf, boolean lenient, Consumer<Record> sink) {
+        Record r = new Record(buf);
+        int pos = buf.position();
+        int limit = buf.limit();
+
+        while (pos < limit) {
+            pos = r.scan(pos, limit, lenient);
+            if (r.valid) sink.accept(r);
+        }
+    }
+
+    /**
+     * Scans every record, valid or not, and hands it to the sink, for
+     * callers that report malformed input instead of skipping it.
+     * In lenient mode a wrapped record that picks up extra fields is taken
+     * to be a broken line followed by a complete record: its first line is
+     * handed over on its own (invalid) and the scan resumes on the next line.
+     * The same {@link Record} instance is reused for each call.
+     *
+     * @param buf     UTF-8 encoded records (read from position to limit)
+     * @param lenient true to allow records wrapped over several lines
+     * @param sink    receives each record; check {@link Record#isValid()}
+     */
+    static void scanAll(ByteBuffer buf, boolean lenient, Consumer<Record> sink) {
+        Record r = new Record(buf);
+        int pos = buf.position();
+        int limit = buf.limit();
+
+        while (pos < limit) {
+            int next = r.scan(pos, limit, lenient);
+            if (r.offset() >= limit) break; // only whitespace was left
+            if (r.wrapped && r.fields > FIELDS) {
+                int eol = r.start;
+                while (eol < limit && buf.get(eol) != '\n' && buf.get(eol) != '\r') eol++;
+                next = r.scan(r.start, eol, false);
+            }
+            sink.accept(r);
+            pos = next;
+        }
+    }
+
+    /**
+     * Creates a record cursor over a buffer, for decoding records at known
+     * offsets with {@link Record#at}. Each thread needs its own cursor.
+     *
+     * @param buf buffer holding records
+     * @return an unpositioned record
+     */
+    static Record cursor(ByteBuffer buf) {
+        return new Record(buf);
+    }
+
+    /**
+     * Memory-maps a file and scans every record in it.
+     *
+     * @param path    file to read
+     * @param lenient true to allow records wrapped over several lines
+     * @param sink    receives each parsed record
+     * @throws IOException if the file cannot be read
+     */
+    static void readFile(Path path, boolean lenient, Consumer<Record> sink) throws IOException {
+        read(map(path), lenient, sink);
+    }
+
+    /**
+     * Scans a file for the first record whose word has the given key.
+     * Only the word field of each record is decoded, and the scan stops at
+     * the first match.
+     *
+     * @param path file to scan
+     * @param key  normalized word to look for (see {@link KeyNormalizer})
+     * @return the matching entry, or null if none
+     * @throws IOException if the file cannot be read
+     */
+    static dictionaryEntry find(Path path, String key) throws IOException {
+        ByteBuffer buf = map(path);
+        Record r = new Record(buf);
+        int pos = buf.position();
+        int limit = buf.limit();
+
+        while (pos < limit) {
+            pos = r.scan(pos, limit, false);
+            if (r.valid && KeyNormalizer.normalize(r.word()).equals(key)) return r.toEntry();
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the single record that starts at a known offset.
+     *
+     * @param buf    buffer holding strict-format records
+     * @param offset start of the record, as returned by {@link Record#offset()}
+     * @return the decoded entry, or null if no valid record starts there
+     */
+    static dictionaryEntry decodeAt(ByteBuffer buf, int offset) {
+        Record r = new Record(buf);
+        r.scan(offset, buf.limit(), false);
+        return r.valid ? r.toEntry() : null;
+    }
+
+    /**
+     * Maps a whole file read-only into memory.
+     *
+     * @param path file to map
+     * @return read-only buffer over the file contents
+     * @throws IOException if the file cannot be opened
+     */
+    static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+    }
+
+    /**
+     * Opens a writer that replaces the contents of a file.
+     *
+     * @param path destination file
+     * @return writer positioned at the start of the file
+     * @throws IOException if the file cannot be opened
+     */
+    static Writer newWriter(Path path) throws IOException {
+        return new Writer(FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE));
+    }
+
+    private static boolean isSpace(int b) {
+        return b <= ' ' && b >= 0;
+    }
+
+    /**
+     * Flyweight view of one record inside the source buffer.
+     * Only the field boundaries are stored; field text is decoded on demand.
+     */
+    static final class Record {
+        private final ByteBuffer buf;
+        private final int[] bounds = new int[FIELDS * 2];
+        private int start;
+        private int end;
+        private int fields;
+        private boolean valid;
+        private boolean wrapped;
+        private byte[] scratch = new byte[256];
+
+        private Record(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        /**
+         * Locates the next record starting at {@code pos}.
+         *
+         * @return position just past the scanned record
+         */
+        private int scan(int pos, int limit, boolean lenient) {
+            valid = false;
+            wrapped = false;
+
+            // skip blank lines and leading whitespace
+            while (pos < limit && isSpace(buf.get(pos))) pos++;
+            if (pos >= limit) {
+                start = end = limit;
+                fields = 0;
+                return limit;
+            }
+
+            start = pos;
+            bounds[0] = pos;
+            int field = 0;
+
+            while (pos < limit) {
+                byte b = buf.get(pos);
+                if (b == SEP) {
+                    if (field < FIELDS - 1) {
+                        bounds[field * 2 + 1] = pos;
+                        field++;
+                        bounds[field * 2] = pos + 1;
+                    } else if (field == FIELDS - 1) {
+                        // extra separators: the last field stops at the first one
+                        bounds[field * 2 + 1] = pos;
+                        field++;
+                    }
+                } else if (b == '\n' || b == '\r') {
+                    if (!lenient || field >= FIELDS - 1) break;
+                    wrapped = true;
+                }
+                pos++;
+            }
+
+            end = pos;
+            fields = field + 1;
+            if (field == FIELDS - 1) bounds[field * 2 + 1] = pos;
+            valid = field >= FIELDS - 1;
+            return pos;
+        }
+
+        /**
+         * Scans the record that starts at a known offset.
+         *
+         * @param offset  start of the record, as returned by {@link #offset()}
+         * @param lenient true to allow records wrapped over several lines
+         * @return this record
+         */
+        Record at(int offset, boolean lenient) {
+            scan(offset, buf.limit(), lenient);
+            return this;
+        }
+
+        /**
+         * @return true if the record has all {@link #FIELDS} fields
+         */
+        boolean isValid() { return valid; }
+
+        /**
+         * Returns the number of fields found, counting one more than
+         * {@link #FIELDS} if the record has extra separators.
+         *
+         * @return number of fields, at most {@code FIELDS + 1}
+         */
+        int fieldCount() { return fields; }
+
+        /**
+         * Returns the byte offset of this record in the source buffer.
+         *
+         * @return start offset of the record
+         */
+        int offset() { return start; }
+
+        /**
+         * Returns the byte offset just past the end of this record.
+         *
+         * @return end offset of the record
+         */
+        int endOffset() { return end; }
+
+        /** @return the decoded word field */
+        String word() { return field(0); }
+
+        /** @return the decoded pronunciation field */
+        String pronounce() { return field(1); }
+
+        /** @return the decoded definition field */
+        String definition() { return field(2); }
+
+        /** @return the decoded example field */
+        String example() { return field(3); }
+
+        /**
+         * Decodes the comma separated synonym field.
+         * Blank items are dropped and at most 4 synonyms are returned,
+         * matching what {@link dictionaryEntry} keeps.
+         *
+         * @return list of trimmed synonyms
+         */
+        List<String> synonyms() {
+            int from = bounds[8];
+            int to = bounds[9];
+            List<String> syns = new ArrayList<>(4);
+
+            int itemStart = from;
+            for (int i = from; i <= to && syns.size() < 4; i++) {
+                if (i == to || buf.get(i) == ',') {
+                    String s = decode(itemStart, i);
+                    if (!s.isEmpty()) syns.add(s);
+                    itemStart = i + 1;
+                }
+            }
+            return syns;
+        }
+
+        /**
+         * Materializes the record as a dictionary entry.
+         *
+         * @return new entry with all fields decoded
+         */
+        dictionaryEntry toEntry() {
+            return new dictionaryEntry(word(), pronounce(), definition(), example(), synonyms());
+        }
+
+        /**
+         * Decodes one field, trimmed.
+         *
+         * @param i field index (0-4)
+         * @return decoded field text
+         */
+        String field(int i) {
+            return decode(bounds[i * 2], bounds[i * 2 + 1]);
+        }
+
+        /**
+         * Decodes a UTF-8 byte range, trimming surrounding whitespace.
+         * In wrapped records, line breaks and the whitespace around them
+         * collapse to a single space.
+         */
+        private String decode(int from, int to) {
+            while (from < to && isSpace(buf.get(from))) from++;
+            while (to > from && isSpace(buf.get(to - 1))) to--;
+            int len = to - from;
+            if (len == 0) return "";
+
+            if (!wrapped && buf.hasArray()) {
+                return new String(buf.array(), buf.arrayOffset() + from, len, StandardCharsets.UTF_8);
+            }
+
+            if (scratch.length < len) scratch = new byte[Math.max(len, scratch.length * 2)];
+            if (!wrapped) {
+                buf.get(from, scratch, 0, len);
+                return new String(scratch, 0, len, StandardCharsets.UTF_8);
+            }
+
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                byte b = buf.get(i);
+                if (b == '\n' || b == '\r') {
+                    while (n > 0 && isSpace(scratch[n - 1])) n--;
+                    while (i + 1 < to && isSpace(buf.get(i + 1))) i++;
+                    scratch[n++] = ' ';
+                } else {
+                    scratch[n++] = b;
+                }
+            }
+            return new String(scratch, 0, n, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Streams entries to a channel in strict (one line per record) format.
+     * Field text is sanitized while it is encoded: line breaks become spaces
+     * and '|' becomes '/', so every entry round-trips through {@link #read}.
+     */
+    static final class Writer implements Closeable {
+        private final WritableByteChannel out;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER);
+
+        Writer(WritableByteChannel out) {
+            this.out = out;
+        }
+
+        /**
+         * Appends one entry as a single line.
+         *
+         * @param e entry to write
+         * @throws IOException if the channel write fails
+         */
+        void write(dictionaryEntry e) throws IOException {
+            putField(e.getWord());
+            put(SEP);
+            putField(e.getPronounce());
+            put(SEP);
+            putField(e.getDefinition());
+            put(SEP);
+            putField(e.getExample());
+            put(SEP);
+
+            boolean first = true;
+            for (String s : e.getSyn()) {
+                if (!first) {
+                    put((byte) ',');
+                    put((byte) ' ');
+                }
+                putChars(s, 0, s.length());
+                first = false;
+            }
+            put((byte) '\n');
+        }
+
+        /**
+         * Writes a field trimmed of surrounding whitespace.
+         */
+        private void putField(CharSequence s) throws IOException {
+            if (s == null) return;
+            int from = 0;
+            int to = s.length();
+            while (from < to && isBlank(s.charAt(from))) from++;
+            while (to > from && isBlank(s.charAt(to - 1))) to--;
+            putChars(s, from, to);
+        }
+
+        /**
+         * Sanitizes and UTF-8 encodes a char range straight into the buffer.
+         */
+        private void putChars(CharSequence s, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    if (c == '\n' || c == '\r') c = ' ';
+                    else if (c == '|') c = '/';
+                    put((byte) c);
+                } else if (c < 0x800) {
+                    ensure(2);
+                    buf.put((byte) (0xC0 | (c >> 6)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    ensure(4);
+                    buf.put((byte) (0xF0 | (cp >> 18)));
+                    buf.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    buf.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (cp & 0x3F)));
+                } else if (Character.isSurrogate(c)) {
+                    put((byte) '?'); // unpaired half of a pair has no UTF-8 encoding
+                } else {
+                    ensure(3);
+                    buf.put((byte) (0xE0 | (c >> 12)));
+                    buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    buf.put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        private static boolean isBlank(char c) {
+            return c <= ' ';
+        }
+
+        private void put(byte b) throws IOException {
+            ensure(1);
+            buf.put(b);
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+
+        /**
+         * Writes any buffered bytes to the channel.
+         *
+         * @throws IOException if the channel write fails
+         */
+        void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) out.write(buf);
+            buf.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dictionary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Dictionary service that writes every operation the UI makes to a
+ * {@link WorkloadTrace}, with its time, for {@link WorkloadReplayer}.
+ *
+ * The controller only reaches the dictionary through the service, so
+ * recording here captures its handlers as they really run: one prefix or
+ * pattern search per filter keystroke, a find per selection or Top-5
+ * click, imports in the middle of a session. Calls the controller makes to
+ * follow a background load or replication go through {@link #untraced}
+ * and are not recorded, so they do not show up as user operations;
+ * loading, saving and applying replicated changes are not recorded either.
+ *
+ * Recording stops (the service keeps working) if the trace cannot be
+ * written.
+ */
+public class RecordingService extends DictionaryService implements AutoCloseable {
+
+    private volatile WorkloadTrace.Writer trace;
+
+    /** Depth of {@link #untraced} calls on each thread */
+    private final ThreadLocal<int[]> untracedDepth = ThreadLocal.withInitial(() -> new int[1]);
+
+    /**
+     * @param path trace file to create (replaced)
+     * @throws IOException if the file cannot be created
+     */
+    public RecordingService(Path path) throws IOException {
+        this.trace = new WorkloadTrace.Writer(path);
+    }
+
+    private void record(WorkloadTrace.Op op, String text, int number, dictionaryEntry entry) {
+        WorkloadTrace.Writer t = trace;
+        if (t == null || untracedDepth.get()[0] > 0) return;
+        try {
+            t.write(op, text, number, entry);
+        } catch (IOException e) {
+            trace = null;
+            System.err.println("Workload recording stopped: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public <T> T untraced(Supplier<T> work) {
+        int[] depth = untracedDepth.get();
+        depth[0]++;
+        try {
+            return work.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    @Override
+    public Optional<dictionaryEntry> find(String word) {
+        if (word != null) record(WorkloadTrace.Op.FIND, word, 0, null);
+        return super.find(word);
+    }
+
+    @Override
+    public void addOrUpdate(dictionaryEntry entry) {
+        record(WorkloadTrace.Op.ADD, null, 0, entry);
+        super.addOrUpdate(entry);
+    }
+
+    @Override
+    public boolean delete(String word) {
+        if (word != null) record(WorkloadTrace.Op.DELETE, word, 0, null);
+        return super.delete(word);
+    }
+
+    @Override
+    public List<String> sort() {
+        record(WorkloadTrace.Op.SORT, null, 0, null);
+        return super.sort();
+    }
+
+    @Override
+    public List<String> searchPrefix(String prefix) {
+        record(WorkloadTrace.Op.PREFIX, prefix, 0, null);
+        return super.searchPrefix(prefix);
+    }
+
+    @Override
+    public int count() {
+        record(WorkloadTrace.Op.COUNT, null, 0, null);
+        return super.count();
+    }
+
+    @Override
+    public List<String> searchPattern(String pattern) {
+        record(WorkloadTrace.Op.PATTERN, pattern, 0, null);
+        return super.searchPattern(pattern);
+    }
+
+    @Override
+    public List<String> soundsLike(String word) {
+        if (word != null) record(WorkloadTrace.Op.SOUNDS_LIKE, word, 0, null);
+        return super.soundsLike(word);
+    }
+
+    @Override
+    public List<String> complete(String prefix, int k) {
+        if (prefix != null) record(WorkloadTrace.Op.COMPLETE, prefix, k, null);
+        return super.complete(prefix, k);
+    }
+
+    @Override
+    public List<String> anagrams(String letters) {
+        if (letters != null) record(WorkloadTrace.Op.ANAGRAMS, letters, 0, null);
+        return super.anagrams(letters);
+    }
+
+    @Override
+    public List<String> buildableWords(String letters, int minLength) {
+        if (letters != null) record(WorkloadTrace.Op.BUILD, letters, minLength, null);
+        return super.buildableWords(letters, minLength);
+    }
+
+    @Override
+    public List<String> topSearched(int n) {
+        record(WorkloadTrace.Op.TOP, null, Math.max(0, n), null);
+        return super.topSearched(n);
+    }
+
+    @Override
+    public void clearFrequency() {
+        record(WorkloadTrace.Op.CLEAR_HISTORY, null, 0, null);
+        super.clearFrequency();
+    }
+
+    @Override
+    public ImportPlan planImport(Path path) throws IOException {
+        record(WorkloadTrace.Op.PLAN_IMPORT, path.toAbsolutePath().toString(), 0, null);
+        return super.planImport(path);
+    }
+
+    @Override
+    public int applyImport(ImportPlan plan, boolean replaceConflicts) {
+        record(WorkloadTrace.Op.APPLY_IMPORT, null, replaceConflicts ? 1 : 0, null);
+        return super.applyImport(plan, replaceConflicts);
+    }
+
+    /**
+     * Finishes the trace file.
+     */
+    @Override
+    public void close() {
+        WorkloadTrace.Writer t = trace;
+        trace = null;
+        if (t == null) return;
+        try {
+            t.close();
+        } catch (IOException e) {
+            System.err.println("Workload trace not closed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package dictionary;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Replica side of replication: keeps a service in step with a primary's
+ * {@link ReplicationServer}.
+ *
+ * On connect the replica sends the epoch and offset it stopped at. A new
+ * replica, or one the primary cannot serve from its log, receives a
+ * snapshot first: entries are applied in batches of {@link #APPLY_BATCH},
+ * and words the snapshot does not contain are then deleted locally. After
+ * that every batch of log records is applied with one call to
+ * {@link DictionaryService#applyMutations}.
+ *
+ * About once a second the replica reports its offset, how far behind the
+ * primary's log it is (in changes and in time since the last change it
+ * applied was made on the primary), and the changes applied per second.
+ * Lag in time compares wall clocks, so it is exact on one host.
+ *
+ * A lost connection is retried with a growing delay; the replica resumes
+ * from its offset without a new snapshot if the primary still has the log.
+ */
+public class ReplicaClient implements AutoCloseable {
+
+    /** Snapshot entries applied at a time */
+    private static final int APPLY_BATCH = 4096;
+
+    /** Interval between status reports */
+    private static final long REPORT_MS = 1_000;
+
+    /** No frame for this long means the primary is gone (heartbeats come every second) */
+    private static final int READ_TIMEOUT_MS = 10_000;
+
+    private static final long MAX_RETRY_MS = 30_000;
+
+    private final DictionaryService service;
+    private final String host;
+    private final int port;
+    private final Consumer<String> status;
+    private final Thread thread;
+    private volatile boolean closed;
+    private volatile Socket socket;
+
+    /** Epoch and next offset of the primary's log; 0 and -1 before the first snapshot */
+    private long epoch;
+    private volatile long next = -1;
+
+    // progress since the last report
+    private long applied;
+    private long lastReport = System.nanoTime();
+
+    /**
+     * Connects in the background and starts applying the primary's changes.
+     *
+     * @param service service to keep in step (normally empty at start)
+     * @param primary primary address as host:port
+     * @param status  receives a progress line about once a second, and
+     *                connection events (called on the replication thread)
+     */
+    public ReplicaClient(DictionaryService service, String primary, Consumer<String> status) {
+        int colon = primary.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Expected host:port, got " + primary);
+        this.service = service;
+        this.host = colon == 0 ? "localhost" : primary.substring(0, colon);
+        this.port = Integer.parseInt(primary.substring(colon + 1));
+        this.status = status;
+        this.thread = new Thread(this::run, "replica-of-" + primary);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        long retryMs = 500;
+        while (!closed) {
+            try (Socket s = new Socket()) {
+                socket = s;
+                s.connect(new InetSocketAddress(host, port), 5_000);
+                s.setSoTimeout(READ_TIMEOUT_MS);
+                s.setTcpNoDelay(true);
+                retryMs = 500;
+                sync(s);
+            } catch (IOException e) {
+                if (closed) return;
+                status.accept("Replica: " + host + ":" + port + " unavailable (" + e.getMessage()
+                        + "), retrying in " + retryMs / 1000.0 + " s");
+            }
+            try {
+                Thread.sleep(retryMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            retryMs = Math.min(MAX_RETRY_MS, retryMs * 2);
+        }
+    }
+
+    private void sync(Socket s) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+        out.writeInt(ReplicationProtocol.MAGIC);
+        out.writeInt(ReplicationProtocol.VERSION);
+        out.writeLong(epoch);
+        out.writeLong(next);
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 1 << 16));
+        if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+            throw new IOException("not a dictionary primary");
+        }
+        epoch = in.readLong();
+        status.accept("Replica: connected to " + host + ":" + port);
+
+        while (!closed) {
+            byte frame = in.readByte();
+            switch (frame) {
+                case ReplicationProtocol.SNAPSHOT -> readSnapshot(in);
+                case ReplicationProtocol.BATCH -> {
+                    long first = in.readLong();
+                    long primaryEnd = in.readLong();
+                    long millis = in.readLong();
+                    int n = in.readInt();
+                    if (first != next) throw new IOException("expected offset " + next + ", got " + first);
+                    List<ReplicationLog.Mutation> batch = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) batch.add(ReplicationProtocol.readMutation(in, millis));
+                    service.applyMutations(batch);
+                    next += n;
+                    applied += n;
+                    report(primaryEnd, System.currentTimeMillis() - millis);
+                }
+                case ReplicationProtocol.HEARTBEAT -> {
+                    long primaryEnd = in.readLong();
+                    in.readLong();
+                    report(primaryEnd, 0);
+                }
+                default -> throw new IOException("unknown frame " + frame);
+            }
+        }
+    }
+
+    /**
+     * Replaces the replica's content with a snapshot streamed by the primary.
+     */
+    private void readSnapshot(DataInputStream in) throws IOException {
+        long t0 = System.nanoTime();
+        long from = in.readLong();
+        Set<String> received = new HashSet<>();
+        List<ReplicationLog.Mutation> batch = new ArrayList<>(APPLY_BATCH);
+        long now = System.currentTimeMillis();
+        for (byte op = in.readByte(); op != ReplicationProtocol.END; op = in.readByte()) {
+            if (op != ReplicationProtocol.PUT) throw new IOException("unexpected snapshot operation " + op);
+            dictionaryEntry e = ReplicationProtocol.readEntry(in);
+            received.add(e.getKey());
+            batch.add(new ReplicationLog.Mutation(e.getKey(), e, now));
+            if (batch.size() == APPLY_BATCH) {
+                service.applyMutations(batch);
+                batch.clear();
+            }
+        }
+        // words the primary no longer has (deleted while this replica was away)
+        service.snapshot().forEachKey("", key -> {
+            if (!received.contains(key)) batch.add(new ReplicationLog.Mutation(key, null, now));
+        });
+        service.applyMutations(batch);
+        next = from;
+        status.accept(String.format("Replica: bootstrapped %d entries from %s:%d in %d ms",
+                received.size(), host, port, (System.nanoTime() - t0) / 1_000_000));
+    }
+
+    private void report(long primaryEnd, long lagMs) {
+        long now = System.nanoTime();
+        if (now - lastReport < REPORT_MS * 1_000_000) return;
+        if (next < 0) {
+            status.accept("Replica: waiting for " + host + ":" + port + " to finish loading");
+            lastReport = now;
+            return;
+        }
+        double seconds = (now - lastReport) / 1e9;
+        status.accept(String.format("Replica at offset %d, %d behind, lag %d ms, %.0f changes/s",
+                next, Math.max(0, primaryEnd - next), lagMs, applied / seconds));
+        applied = 0;
+        lastReport = now;
+    }
+
+    /**
+     * @return offset of the next change expected from the primary, or -1
+     *         before the first snapshot
+     */
+    public long offset() {
+        return next;
+    }
+
+    /**
+     * Disconnects and stops retrying.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Headless replica that prints its progress.
+     *
+     * Usage: ReplicaClient &lt;host:port&gt;
+     *
+     * @param args command line arguments
+     * @throws InterruptedException if interrupted
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplicaClient <host:port>");
+            System.exit(2);
+        }
+        DictionaryService service = new DictionaryService();
+        ReplicaClient client = new ReplicaClient(service, args[0], System.out::println);
+        Runtime.getRuntime().addShutdownHook(new Thread(client::close));
+        Thread.currentThread().join(); // until killed
+    }
+}
@@ -0,0 +1,96 @@
+package dictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ordered log of the changes made on a primary, read by the replication
+ * senders (see {@link ReplicationServer}).
+ *
+ * Every change gets the next offset. The log keeps the most recent
+ * {@link #capacity()} changes in a ring; a replica that falls further
+ * behind than that is sent a fresh snapshot instead.
+ *
+ * A change is recorded as the word's state after it (the entry, or a
+ * deletion), read under the log's lock once the write is done. When two
+ * threads edit the same word at once, the later record therefore holds
+ * the final value, and replicas that apply the log in order converge on
+ * the primary's state.
+ */
+final class ReplicationLog {
+
+    /**
+     * One change.
+     *
+     * @param key    normalized word
+     * @param entry  entry after the change, or null if the word was deleted
+     * @param millis wall-clock time the change was logged
+     */
+    record Mutation(String key, dictionaryEntry entry, long millis) { }
+
+    private final Mutation[] ring;
+    /** Offset of the oldest change kept; guarded by this */
+    private long start;
+    /** Offset the next change will get; guarded by this */
+    private long end;
+
+    /**
+     * @param capacity number of recent changes kept
+     */
+    ReplicationLog(int capacity) {
+        this.ring = new Mutation[Math.max(1, capacity)];
+    }
+
+    /**
+     * Records the current state of a word that has just changed.
+     *
+     * @param key     normalized word
+     * @param current reads the word's entry after the change (null if deleted)
+     */
+    synchronized void append(String key, Function<String, dictionaryEntry> current) {
+        ring[(int) (end % ring.length)] = new Mutation(key, current.apply(key), System.currentTimeMillis());
+        end++;
+        if (end - start > ring.length) start++;
+        notifyAll();
+    }
+
+    /**
+     * Returns the changes from an offset on, waiting for one if there are
+     * none yet.
+     *
+     * @param from      offset of the first change wanted
+     * @param max       most changes returned
+     * @param timeoutMs longest wait for a change
+     * @return changes in order, empty on timeout; null if the oldest change
+     *         wanted has already been overwritten
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized List<Mutation> read(long from, int max, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (from >= end) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) return List.of();
+            wait(left);
+        }
+        if (from < start) return null;
+        int n = (int) Math.min(max, end - from);
+        List<Mutation> out = new ArrayList<>(n);
+        for (long i = from; i < from + n; i++) out.add(ring[(int) (i % ring.length)]);
+        return out;
+    }
+
+    /**
+     * @return offset the next change will get
+     */
+    synchronized long end() {
+        return end;
+    }
+
+    /**
+     * @return number of recent changes kept
+     */
+    int capacity() {
+        return ring.length;
+    }
+}
@@ -0,0 +1,107 @@
+package dictionary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format between a {@link ReplicationServer} and its
+ * {@link ReplicaClient}s, over one TCP connection per replica.
+ *
+ * <pre>
+ * replica -> primary   "DREP" version epoch next-offset   (epoch 0 / offset -1: bootstrap)
+ * primary -> replica   "DREP" version epoch, then frames:
+ *   'S' offset (PUT entry)* END             snapshot; the log continues at offset
+ *   'B' first-offset primary-end millis n mutation*   n consecutive log records
+ *   'H' primary-end millis                  heartbeat while the log is idle, and while
+ *                                           the primary is loading (before any snapshot)
+ * mutation: PUT entry | DELETE key
+ * entry:    word pronunciation definition example synonym-count synonym*
+ * </pre>
+ *
+ * Strings are a length then UTF-8 bytes (no 64 KB limit as with writeUTF).
+ * The epoch is chosen at random when the primary starts; offsets from
+ * another epoch mean nothing and force a new snapshot.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x44524550; // "DREP"
+    static final int VERSION = 1;
+
+    static final byte SNAPSHOT = 'S';
+    static final byte BATCH = 'B';
+    static final byte HEARTBEAT = 'H';
+
+    static final byte END = 0;
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+
+    /** Longest string accepted from the wire */
+    private static final int MAX_STRING = 16 << 20;
+
+    private ReplicationProtocol() { }
+
+    static void writeMutation(DataOutput out, ReplicationLog.Mutation m) throws IOException {
+        if (m.entry() == null) {
+            out.writeByte(DELETE);
+            writeString(out, m.key());
+        } else {
+            out.writeByte(PUT);
+            writeEntry(out, m.entry());
+        }
+    }
+
+    /**
+     * @return the mutation; its time is the primary's log time
+     */
+    static ReplicationLog.Mutation readMutation(DataInput in, long millis) throws IOException {
+        byte op = in.readByte();
+        return switch (op) {
+            case PUT -> {
+                dictionaryEntry e = readEntry(in);
+                yield new ReplicationLog.Mutation(e.getKey(), e, millis);
+            }
+            case DELETE -> new ReplicationLog.Mutation(readString(in), null, millis);
+            default -> throw new IOException("Unknown replication operation " + op);
+        };
+    }
+
+    static void writeEntry(DataOutput out, dictionaryEntry e) throws IOException {
+        writeString(out, e.getWord());
+        writeString(out, e.getPronounce());
+        writeString(out, e.getDefinition());
+        writeString(out, e.getExample());
+        List<String> syns = e.getSyn();
+        out.writeInt(syns.size());
+        for (String s : syns) writeString(out, s);
+    }
+
+    static dictionaryEntry readEntry(DataInput in) throws IOException {
+        String word = readString(in);
+        String pron = readString(in);
+        String def = readString(in);
+        String ex = readString(in);
+        int n = in.readInt();
+        if (n < 0 || n > MAX_STRING) throw new IOException("Corrupt synonym count " + n);
+        List<String> syns = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) syns.add(readString(in));
+        return new dictionaryEntry(word, pron, def, ex, syns);
+    }
+
+    static void writeString(DataOutput out, String s) throws IOException {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0 || n > MAX_STRING) throw new IOException("Corrupt string length " + n);
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
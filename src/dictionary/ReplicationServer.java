@@ -0,0 +1,317 @@
+package dictionary;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Primary side of replication: streams the service's changes to replica
+ * processes over TCP (see {@link ReplicaClient} and
+ * {@link ReplicationProtocol} for the wire format).
+ *
+ * Every add, edit, delete and import is appended to an ordered
+ * {@link ReplicationLog}. Each connected replica has a sender thread that:
+ * - bootstraps a new replica (or one that fell behind the log, or that
+ *   last synced with an earlier run of the primary) by streaming a
+ *   snapshot, noting the log offset first so no change is missed
+ * - then ships the log from the replica's offset in batches of up to
+ *   {@link #BATCH} changes, as fast as the socket takes them
+ * - sends a heartbeat when the log is idle, so the replica can tell an
+ *   idle primary from a dead one and see that its lag is zero
+ *
+ * Connections are held until the primary has finished loading, so a
+ * snapshot never misses words still being read from disk; heartbeats are
+ * sent meanwhile so the replica does not time out.
+ *
+ * There is no authentication or encryption: anyone who can connect gets
+ * the whole dictionary and every later change. The server therefore
+ * listens on the loopback interface only, unless another address is given
+ * explicitly with -Ddictionary.replication.bind=ADDRESS (for example
+ * 0.0.0.0 for every interface, on a trusted network only).
+ */
+public class ReplicationServer implements AutoCloseable {
+
+    /** Most changes sent in one batch */
+    static final int BATCH = 1024;
+
+    /** Idle time after which a heartbeat is sent */
+    static final long HEARTBEAT_MS = 1_000;
+
+    /** Address to listen on instead of the loopback interface; exposes the data unauthenticated */
+    private static final String BIND = System.getProperty("dictionary.replication.bind");
+
+    private final DictionaryService service;
+    private final ReplicationLog log;
+    private final BooleanSupplier ready;
+    private final Consumer<String> status;
+    private final ServerSocket socket;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final List<Sender> senders = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Starts logging the service's changes and listening for replicas.
+     *
+     * @param service  service to replicate
+     * @param port     TCP port to listen on (0 for any free port)
+     * @param logSize  number of recent changes kept for replicas catching up
+     * @param ready    false while the service is still loading; replicas wait
+     * @param status   receives replica connection events (called on the
+     *                 replication threads)
+     * @throws IOException if the port cannot be opened or the bind address resolved
+     */
+    public ReplicationServer(DictionaryService service, int port, int logSize, BooleanSupplier ready,
+                             Consumer<String> status) throws IOException {
+        this.service = service;
+        this.log = new ReplicationLog(logSize);
+        this.ready = ready;
+        this.status = status;
+        service.onWordChanged(key -> log.append(key, k -> service.snapshot().resolve(k)));
+
+        socket = new ServerSocket();
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(
+                BIND == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(BIND), port));
+        Thread acceptor = new Thread(this::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int port() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * @return address and port the server listens on
+     */
+    public String address() {
+        return socket.getInetAddress().getHostAddress() + ":" + socket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        int n = 0;
+        while (!closed) {
+            try {
+                Socket s = socket.accept();
+                s.setTcpNoDelay(true);
+                Sender sender = new Sender(s);
+                senders.add(sender);
+                Thread t = new Thread(sender, "replication-sender-" + ++n);
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                if (!closed) status.accept("Replication: accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Streams the log to one replica */
+    private final class Sender implements Runnable {
+        final Socket socket;
+        final String peer;
+        final AtomicLong shipped = new AtomicLong();
+        volatile long offset;
+
+        Sender(Socket socket) {
+            this.socket = socket;
+            this.peer = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run() {
+            try (socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+                    throw new IOException("not a replica");
+                }
+                long theirEpoch = in.readLong();
+                long next = in.readLong();
+
+                out.writeInt(ReplicationProtocol.MAGIC);
+                out.writeInt(ReplicationProtocol.VERSION);
+                out.writeLong(epoch);
+                out.flush();
+
+                // a replica that has gone away fails the next heartbeat and ends this thread
+                long lastBeat = 0;
+                while (!ready.getAsBoolean() && !closed) {
+                    if (System.nanoTime() - lastBeat >= HEARTBEAT_MS * 1_000_000) {
+                        heartbeat(out);
+                        out.flush();
+                        lastBeat = System.nanoTime();
+                    }
+                    Thread.sleep(100);
+                }
+
+                if (theirEpoch != epoch || next < 0 || next > log.end()) next = sendSnapshot(out);
+                status.accept("Replication: " + peer + " streaming from offset " + next);
+
+                while (!closed) {
+                    List<ReplicationLog.Mutation> batch = log.read(next, BATCH, HEARTBEAT_MS);
+                    if (batch == null) {
+                        // fell behind the ring: start over from a snapshot
+                        next = sendSnapshot(out);
+                        continue;
+                    }
+                    if (batch.isEmpty()) {
+                        heartbeat(out);
+                    } else {
+                        out.writeByte(ReplicationProtocol.BATCH);
+                        out.writeLong(next);
+                        out.writeLong(log.end());
+                        out.writeLong(batch.get(batch.size() - 1).millis());
+                        out.writeInt(batch.size());
+                        for (ReplicationLog.Mutation m : batch) ReplicationProtocol.writeMutation(out, m);
+                        next += batch.size();
+                        shipped.addAndGet(batch.size());
+                    }
+                    out.flush();
+                    offset = next;
+                }
+            } catch (SocketException | EOFException e) {
+                if (!closed) status.accept("Replication: " + peer + " disconnected");
+            } catch (IOException e) {
+                if (!closed) status.accept("Replication: " + peer + ": " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                senders.remove(this);
+            }
+        }
+
+        private void heartbeat(DataOutputStream out) throws IOException {
+            out.writeByte(ReplicationProtocol.HEARTBEAT);
+            out.writeLong(log.end());
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        /**
+         * Streams every entry; the replica then continues from the returned
+         * offset. Changes made during the stream may be both in the
+         * snapshot and in the log after it; applying them twice is harmless.
+         */
+        private long sendSnapshot(DataOutputStream out) throws IOException {
+            long from = log.end(); // before the snapshot: nothing logged after it is lost
+            DictionarySnapshot view = service.snapshot();
+            long t0 = System.nanoTime();
+            long[] n = new long[1];
+            out.writeByte(ReplicationProtocol.SNAPSHOT);
+            out.writeLong(from);
+            try {
+                view.forEachEntry(e -> {
+                    try {
+                        out.writeByte(ReplicationProtocol.PUT);
+                        ReplicationProtocol.writeEntry(out, e);
+                        n[0]++;
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.writeByte(ReplicationProtocol.END);
+            out.flush();
+            status.accept(String.format("Replication: snapshot of %d entries sent to %s in %d ms",
+                    n[0], peer, (System.nanoTime() - t0) / 1_000_000));
+            return from;
+        }
+    }
+
+    /**
+     * @return one line per replica: offset sent and changes shipped
+     */
+    public String report() {
+        long end = log.end();
+        StringBuilder sb = new StringBuilder("Primary: log at offset ").append(end)
+                .append(", ").append(senders.size()).append(" replica(s)");
+        for (Sender s : senders) {
+            sb.append("\n  ").append(s.peer).append(": sent up to ").append(s.offset)
+                    .append(" (").append(end - s.offset).append(" behind), ")
+                    .append(s.shipped.get()).append(" changes shipped");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Stops listening and disconnects every replica.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) { }
+        for (Sender s : senders) {
+            try {
+                s.socket.close();
+            } catch (IOException ignored) { }
+        }
+    }
+
+    /**
+     * Headless primary: mounts a dictionary, serves replicas and, to measure
+     * replication, optionally makes a steady stream of edits.
+     *
+     * Usage: ReplicationServer &lt;dictionary&gt; &lt;port&gt; [edits-per-second]
+     *
+     * @param args command line arguments
+     * @throws Exception if the dictionary cannot be read or the port opened
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: ReplicationServer <dictionary> <port> [edits-per-second]");
+            System.exit(2);
+        }
+        DictionaryService service = new DictionaryService();
+        service.mountFile(Path.of(args[0]));
+        int rate = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+        try (ReplicationServer server = new ReplicationServer(service, Integer.parseInt(args[1]),
+                Integer.getInteger("dictionary.replication.logSize", 100_000), () -> true, System.out::println)) {
+            System.out.println("Primary on " + server.address()
+                    + " serving " + service.count() + " entries");
+            List<String> words = service.sort();
+            Random random = new Random();
+            long period = rate > 0 ? 1_000_000_000L / rate : 0;
+            long next = System.nanoTime();
+            long lastReport = System.nanoTime();
+            int edits = 0;
+            while (true) {
+                if (rate > 0 && !words.isEmpty()) {
+                    String word = words.get(random.nextInt(words.size()));
+                    dictionaryEntry e = service.snapshot().resolve(word);
+                    if (e != null) {
+                        service.addOrUpdate(new dictionaryEntry(e.getWord(), e.getPronounce(),
+                                "edit " + ++edits, e.getExample(), e.getSyn()));
+                    }
+                    next += period;
+                    long wait = next - System.nanoTime();
+                    if (wait > 1_000_000) Thread.sleep(wait / 1_000_000); // else catch up without sleeping
+                } else {
+                    Thread.sleep(HEARTBEAT_MS);
+                }
+                if (System.nanoTime() - lastReport >= 5_000_000_000L) {
+                    lastReport = System.nanoTime();
+                    System.out.println(server.report());
+                }
+            }
+        }
+    }
+}
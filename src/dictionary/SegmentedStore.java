@@ -0,0 +1,531 @@
+package dictionary;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Dictionary saved as a directory of sorted, independently rewritable
+ * segments, so a save only rewrites the segments that hold changed words.
+ *
+ * Each segment is a plain {@link RecordCodec} record file covering one key
+ * range: segment i holds the words from its first key up to (excluding) the
+ * first key of segment i + 1; the first segment starts at "". A manifest
+ * lists the segments with their first key, file name, entry count and CRC32.
+ * Checksums are verified whenever a segment is opened or read.
+ *
+ * Directory layout:
+ * <pre>
+ * manifest                     "DSEG" version generation n, then per segment:
+ *                              first key, file name, entries, crc32
+ * seg-&lt;generation&gt;.txt    one segment in record format
+ * keys.bloom                   optional {@link BloomFilter} over every key,
+ *                              stamped with the manifest generation
+ * </pre>
+ *
+ * A save writes the new segments under fresh names and forces them to disk,
+ * then writes and forces the new manifest and atomically moves it over the
+ * old one, syncing the directory before and after the move, and only then
+ * deletes the files it no longer references. A crash at any point leaves
+ * the previous manifest and all of its segments intact, and segments mapped
+ * by an open store are never overwritten in place.
+ *
+ * An open store is a read-only {@link DictionarySource} that routes each
+ * lookup to the one segment whose range holds the word.
+ */
+public class SegmentedStore implements DictionarySource {
+
+    /** Entries per segment written by a full save */
+    public static final int TARGET_SEGMENT = 2048;
+
+    /** Decoded entries cached per open segment */
+    private static final int SEGMENT_CACHE = 64;
+
+    private static final String MANIFEST = "manifest";
+    private static final String FILTER = "keys.bloom";
+    private static final int MAGIC = 0x44534547; // "DSEG"
+    private static final int VERSION = 1;
+
+    private final String name;
+    private final String[] firstKeys;
+    private final LazyEntryStore[] segments;
+    private final BloomFilter filter;
+
+    private SegmentedStore(String name, String[] firstKeys, LazyEntryStore[] segments, BloomFilter filter) {
+        this.name = name;
+        this.firstKeys = firstKeys;
+        this.segments = segments;
+        this.filter = filter;
+    }
+
+    /**
+     * @param dir directory to check
+     * @return true if the directory holds a segment manifest
+     */
+    public static boolean exists(Path dir) {
+        return Files.isRegularFile(dir.resolve(MANIFEST));
+    }
+
+    /**
+     * Opens every segment in lazy mode (see {@link LazyEntryStore}) after
+     * checking its CRC.
+     *
+     * @param dir     directory written by {@link #save}
+     * @param onBatch receives normalized words in batches as they are
+     *                indexed (may be null)
+     * @return store over all segments
+     * @throws IOException if the manifest or a segment is missing or corrupt
+     */
+    public static SegmentedStore open(Path dir, Consumer<List<String>> onBatch) throws IOException {
+        Manifest m = Manifest.read(dir);
+        LazyEntryStore[] segments = new LazyEntryStore[m.size()];
+        for (int i = 0; i < segments.length; i++) {
+            Segment s = m.segments.get(i);
+            Path file = dir.resolve(s.file);
+            verify(file, s);
+            segments[i] = LazyEntryStore.open(file, onBatch, SEGMENT_CACHE);
+        }
+        String[] firstKeys = new String[m.size()];
+        for (int i = 0; i < firstKeys.length; i++) firstKeys[i] = m.segments.get(i).firstKey;
+        return new SegmentedStore(dir.getFileName().toString(), firstKeys, segments, readFilter(dir, m));
+    }
+
+    /**
+     * Reads the key filter saved with a manifest. A filter left by an
+     * earlier save (crash between writing the manifest and the filter) has
+     * an older generation and is ignored, as it may lack newer keys.
+     */
+    private static BloomFilter readFilter(Path dir, Manifest m) {
+        Path file = dir.resolve(FILTER);
+        if (!Files.isRegularFile(file)) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return in.readLong() == m.generation ? BloomFilter.readFrom(in) : null;
+        } catch (IOException e) {
+            return null; // the filter is only an optimization
+        }
+    }
+
+    /**
+     * Reads every record of every segment, in sorted order, after checking
+     * each segment's CRC.
+     *
+     * @param dir  directory written by {@link #save}
+     * @param sink receives each record (reused; see {@link RecordCodec#read})
+     * @throws IOException if the manifest or a segment is missing or corrupt
+     */
+    static void readAll(Path dir, Consumer<RecordCodec.Record> sink) throws IOException {
+        for (Segment s : Manifest.read(dir).segments) {
+            Path file = dir.resolve(s.file);
+            RecordCodec.read(verify(file, s), false, sink);
+        }
+    }
+
+    /**
+     * Saves a dictionary state into a segment directory.
+     *
+     * With no manifest yet, or when {@code changed} is null, every entry is
+     * written into new segments of {@link #TARGET_SEGMENT} entries.
+     * Otherwise only the segments whose range holds a changed word are
+     * rewritten: their unchanged records are copied over, the changed words
+     * are resolved through the view, deleted words drop out, and a segment
+     * that has grown past twice the target size is split. Segments that end
+     * up empty are removed.
+     *
+     * @param dir     segment directory (created if needed)
+     * @param view    dictionary state to save
+     * @param changed normalized words added, edited or deleted since the
+     *                last save, or null for a full save
+     * @param filter  filter holding at least every key of the view, saved
+     *                next to the manifest; null to save none
+     * @return number of segment files written
+     * @throws IOException if a file cannot be read or written
+     */
+    static int save(Path dir, DictionarySnapshot view, Collection<String> changed, BloomFilter filter)
+            throws IOException {
+        Files.createDirectories(dir);
+        Manifest old = exists(dir) ? Manifest.read(dir) : null;
+        if (old != null && changed != null && changed.isEmpty()) return 0;
+
+        Manifest next = old == null ? new Manifest(0) : new Manifest(old.generation);
+        int written = 0;
+
+        if (old == null || changed == null || old.size() == 0) {
+            SegmentWriter out = new SegmentWriter(dir, next);
+            try {
+                view.forEachEntry(e -> {
+                    try {
+                        out.add(e);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            written = out.finish();
+        } else {
+            // group the changed words by the segment whose range holds them
+            String[] firstKeys = old.firstKeys();
+            Map<Integer, List<String>> bySegment = new TreeMap<>();
+            for (String key : changed) {
+                bySegment.computeIfAbsent(locate(firstKeys, key), i -> new ArrayList<>()).add(key);
+            }
+
+            for (int i = 0; i < old.size(); i++) {
+                Segment s = old.segments.get(i);
+                List<String> keys = bySegment.get(i);
+                if (keys == null) {
+                    next.segments.add(s);
+                    continue;
+                }
+
+                // unchanged records are copied as they are; only the changed
+                // words are looked up, so a view without this store cannot drop any
+                Set<String> touched = new HashSet<>(keys);
+                TreeMap<String, dictionaryEntry> entries = new TreeMap<>();
+                RecordCodec.read(verify(dir.resolve(s.file), s), false, r -> {
+                    String key = KeyNormalizer.normalize(r.word());
+                    if (touched.contains(key)) return;
+                    entries.put(key, r.toEntry());
+                    if (filter != null) filter.add(key);
+                });
+                for (String key : keys) {
+                    dictionaryEntry e = view.resolve(key);
+                    if (e != null) entries.put(key, e);
+                }
+
+                SegmentWriter out = new SegmentWriter(dir, next);
+                out.firstKey = s.firstKey;
+                for (dictionaryEntry e : entries.values()) out.add(e);
+                written += out.finish();
+            }
+        }
+
+        if (!next.segments.isEmpty()) next.segments.get(0).firstKey = "";
+        syncDirectory(dir); // the new segment names are durable before the manifest refers to them
+        next.write(dir);
+        writeFilter(dir, next, filter);
+        syncDirectory(dir); // the new manifest is durable before the old segments go
+        deleteUnreferenced(dir, next);
+        return written;
+    }
+
+    private static void writeFilter(Path dir, Manifest m, BloomFilter filter) throws IOException {
+        Path file = dir.resolve(FILTER);
+        if (filter == null) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path tmp = dir.resolve(FILTER + ".tmp");
+        writeDurably(tmp, out -> {
+            out.writeLong(m.generation);
+            filter.writeTo(out);
+        });
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Writes the content of a file through a buffered stream */
+    private interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes a file and forces its content and length to disk before
+     * returning, so it can be moved into place.
+     */
+    private static void writeDurably(Path file, Content content) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+            content.writeTo(out);
+            out.flush();
+            ch.force(true);
+        }
+    }
+
+    /**
+     * Forces a directory's entries (files created, renamed or deleted) to
+     * disk. Windows cannot open a directory as a channel; NTFS journals
+     * those changes itself, so the failure is ignored there.
+     */
+    private static void syncDirectory(Path dir) throws IOException {
+        FileChannel ch;
+        try {
+            ch = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException unsupported) {
+            return;
+        }
+        try (ch) {
+            ch.force(true);
+        }
+    }
+
+    /**
+     * Index of the segment whose range holds a key.
+     */
+    private static int locate(String[] firstKeys, String key) {
+        int i = Arrays.binarySearch(firstKeys, key);
+        if (i < 0) i = -i - 2;
+        return Math.max(0, i);
+    }
+
+    /**
+     * Maps a segment and checks it against the manifest.
+     */
+    private static ByteBuffer verify(Path file, Segment s) throws IOException {
+        ByteBuffer data = RecordCodec.map(file);
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        if (crc.getValue() != s.crc) throw new IOException("Corrupt dictionary segment: " + file);
+        return data;
+    }
+
+    /**
+     * Removes segment files left over from earlier saves. A file that is
+     * still mapped (on systems that forbid deleting it) is kept for the next
+     * save to remove.
+     */
+    private static void deleteUnreferenced(Path dir, Manifest m) throws IOException {
+        Set<String> live = new HashSet<>();
+        for (Segment s : m.segments) live.add(s.file);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "seg-*.txt")) {
+            for (Path f : files) {
+                if (live.contains(f.getFileName().toString())) continue;
+                try {
+                    Files.deleteIfExists(f);
+                } catch (IOException ignored) { }
+            }
+        }
+    }
+
+    // ----------------------------
+    // DictionarySource
+    // ----------------------------
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public dictionaryEntry get(String key) {
+        return segments.length == 0 ? null : segments[locate(firstKeys, key)].get(key);
+    }
+
+    @Override
+    public dictionaryEntry read(String key) {
+        return segments.length == 0 ? null : segments[locate(firstKeys, key)].read(key);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return segments.length != 0 && segments[locate(firstKeys, key)].contains(key);
+    }
+
+    @Override
+    public BloomFilter keyFilter() {
+        return filter;
+    }
+
+    @Override
+    public int size() {
+        int n = 0;
+        for (LazyEntryStore s : segments) n += s.size();
+        return n;
+    }
+
+    /**
+     * Iterates the words starting with a prefix, in sorted order, walking
+     * the segments from the one whose range holds the prefix.
+     *
+     * @param prefix normalized prefix
+     * @return sorted iterator over matching words
+     */
+    @Override
+    public Iterator<String> keys(String prefix) {
+        int first = segments.length == 0 ? 0 : locate(firstKeys, prefix);
+        return new Iterator<>() {
+            private int segment = first;
+            private Iterator<String> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext()) {
+                    if (segment >= segments.length) return false;
+                    // later segments start past the prefix range
+                    if (segment > first && firstKeys[segment].compareTo(prefix) > 0
+                            && !firstKeys[segment].startsWith(prefix)) return false;
+                    current = segments[segment++].keys(prefix);
+                }
+                return true;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+    }
+
+    // ----------------------------
+    // Manifest and writing
+    // ----------------------------
+
+    /** One manifest row */
+    private static final class Segment {
+        String firstKey;
+        final String file;
+        final int entries;
+        final long crc;
+
+        Segment(String firstKey, String file, int entries, long crc) {
+            this.firstKey = firstKey;
+            this.file = file;
+            this.entries = entries;
+            this.crc = crc;
+        }
+    }
+
+    /** Ordered segment list plus the counter used to name new files */
+    private static final class Manifest {
+        final List<Segment> segments = new ArrayList<>();
+        long generation;
+
+        Manifest(long generation) {
+            this.generation = generation;
+        }
+
+        int size() {
+            return segments.size();
+        }
+
+        String[] firstKeys() {
+            String[] keys = new String[segments.size()];
+            for (int i = 0; i < keys.length; i++) keys[i] = segments.get(i).firstKey;
+            return keys;
+        }
+
+        static Manifest read(Path dir) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(dir.resolve(MANIFEST))))) {
+                if (in.readInt() != MAGIC) throw new IOException("Not a segment manifest: " + dir);
+                if (in.readInt() != VERSION) throw new IOException("Unsupported manifest version in " + dir);
+                Manifest m = new Manifest(in.readLong());
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    m.segments.add(new Segment(in.readUTF(), in.readUTF(), in.readInt(), in.readLong()));
+                }
+                return m;
+            }
+        }
+
+        void write(Path dir) throws IOException {
+            Path tmp = dir.resolve(MANIFEST + ".tmp");
+            writeDurably(tmp, out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                out.writeInt(segments.size());
+                for (Segment s : segments) {
+                    out.writeUTF(s.firstKey);
+                    out.writeUTF(s.file);
+                    out.writeInt(s.entries);
+                    out.writeLong(s.crc);
+                }
+            });
+            Files.move(tmp, dir.resolve(MANIFEST),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Writes sorted entries into new segment files of at most twice
+     * {@link #TARGET_SEGMENT} entries, appending a manifest row for each.
+     * A run is cut at the target size unless that would leave a tail
+     * shorter than the target.
+     */
+    private static final class SegmentWriter {
+        private final Path dir;
+        private final Manifest manifest;
+        private final List<dictionaryEntry> pending = new ArrayList<>();
+        private String firstKey;
+        private int files;
+
+        SegmentWriter(Path dir, Manifest manifest) {
+            this.dir = dir;
+            this.manifest = manifest;
+        }
+
+        void add(dictionaryEntry e) throws IOException {
+            pending.add(e);
+            if (pending.size() == 2 * TARGET_SEGMENT) flush(TARGET_SEGMENT);
+        }
+
+        /**
+         * Writes what is left.
+         *
+         * @return number of files written
+         */
+        int finish() throws IOException {
+            if (!pending.isEmpty()) flush(pending.size());
+            return files;
+        }
+
+        private void flush(int n) throws IOException {
+            List<dictionaryEntry> run = pending.subList(0, n);
+            String key = firstKey != null ? firstKey : run.get(0).getKey();
+            String file = String.format("seg-%08d.txt", ++manifest.generation);
+
+            CRC32 crc = new CRC32();
+            try (RecordCodec.Writer w = new RecordCodec.Writer(new CheckedChannel(
+                    FileChannel.open(dir.resolve(file), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), crc))) {
+                for (dictionaryEntry e : run) w.write(e);
+            }
+            manifest.segments.add(new Segment(key, file, n, crc.getValue()));
+
+            run.clear();
+            firstKey = null;
+            files++;
+        }
+    }
+
+    /** Channel that computes the CRC32 of everything written through it */
+    private static final class CheckedChannel implements WritableByteChannel {
+        private final FileChannel out;
+        private final CRC32 crc;
+
+        CheckedChannel(FileChannel out, CRC32 crc) {
+            this.out = out;
+            this.crc = crc;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            ByteBuffer written = src.duplicate();
+            int n = out.write(src);
+            written.limit(written.position() + n);
+            crc.update(written);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return out.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.force(true); // content and length, before the manifest can refer to the file
+            }
+        }
+    }
+}
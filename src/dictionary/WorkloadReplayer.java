@@ -0,0 +1,237 @@
+package dictionary;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Headless replay of a {@link WorkloadTrace} recorded by
+ * {@link RecordingService}, for performance regression testing against
+ * real sessions instead of synthetic benchmarks.
+ *
+ * The trace is replayed against a fresh service with the dictionary
+ * mounted, on one thread, either at the recorded pace or as fast as
+ * possible ({@code --fast}). Per operation type it reports the count and
+ * the 50th, 90th, 99th and 99.9th percentile and maximum latency.
+ *
+ * At the recorded pace, latency is measured from the time the operation
+ * was due, so when the replay falls behind (an operation slower than the
+ * user's pause before the next one) the wait counts too, as it would for
+ * the user. In fast mode it is the time of the call alone.
+ *
+ * Results can be saved ({@code --out=FILE}) and two saved results, from
+ * two builds replaying the same trace, compared:
+ *
+ * <pre>
+ * WorkloadReplayer &lt;dictionary&gt; &lt;trace&gt; [--fast] [--warmup] [--out=FILE]
+ * WorkloadReplayer --compare &lt;baseline&gt; &lt;candidate&gt; [--max-regression=PCT]
+ * </pre>
+ *
+ * {@code --warmup} replays the trace once, untimed, on a separate service
+ * first, so the JIT has compiled the hot paths. The comparison prints the
+ * p99 of both builds per operation and exits with status 1 if a p99 grew by
+ * more than the given percentage.
+ */
+public class WorkloadReplayer {
+
+    private static final double[] PERCENTILES = { 0.50, 0.90, 0.99, 0.999 };
+
+    /** Sum of the result sizes of the last replay */
+    private static volatile long checksum;
+
+    /** Latencies of one operation type, in nanoseconds */
+    private static final class Samples {
+        long[] values = new long[256];
+        int n;
+
+        void add(long v) {
+            if (n == values.length) values = Arrays.copyOf(values, n * 2);
+            values[n++] = v;
+        }
+
+        /** @return microseconds at each of {@link #PERCENTILES}, then the maximum */
+        double[] summary() {
+            long[] sorted = Arrays.copyOf(values, n);
+            Arrays.sort(sorted);
+            double[] out = new double[PERCENTILES.length + 1];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                int idx = Math.max(0, (int) Math.ceil(PERCENTILES[i] * n) - 1);
+                out[i] = sorted[idx] / 1_000.0;
+            }
+            out[PERCENTILES.length] = sorted[n - 1] / 1_000.0;
+            return out;
+        }
+    }
+
+    private WorkloadReplayer() { }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("--compare")) {
+            double max = Double.NaN;
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].startsWith("--max-regression=")) max = Double.parseDouble(args[i].substring(17));
+            }
+            System.exit(compare(Path.of(args[1]), Path.of(args[2]), max) ? 0 : 1);
+        }
+
+        Path dictionary = null;
+        Path trace = null;
+        Path out = null;
+        boolean fast = false;
+        boolean warmup = false;
+        for (String arg : args) {
+            if (arg.equals("--fast")) fast = true;
+            else if (arg.equals("--warmup")) warmup = true;
+            else if (arg.startsWith("--out=")) out = Path.of(arg.substring(6));
+            else if (dictionary == null) dictionary = Path.of(arg);
+            else trace = Path.of(arg);
+        }
+        if (trace == null) {
+            System.err.println("Usage: WorkloadReplayer <dictionary> <trace> [--fast] [--warmup] [--out=FILE]");
+            System.err.println("       WorkloadReplayer --compare <baseline> <candidate> [--max-regression=PCT]");
+            System.exit(2);
+        }
+
+        List<WorkloadTrace.Event> events = WorkloadTrace.read(trace);
+        System.err.printf("Trace %s: %d operations over %.1f s%n", trace.getFileName(), events.size(),
+                events.isEmpty() ? 0.0 : events.get(events.size() - 1).micros() / 1e6);
+
+        if (warmup) replay(service(dictionary), events, true);
+
+        DictionaryService service = service(dictionary);
+        long t0 = System.nanoTime();
+        Map<WorkloadTrace.Op, Samples> samples = replay(service, events, fast);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        String header = String.format("# %s on %s, %s, %d operations in %d ms, result checksum %d",
+                trace.getFileName(), dictionary.getFileName(), fast ? "fast" : "recorded pace",
+                events.size(), ms, checksum);
+        print(System.out, header, samples);
+        if (out != null) {
+            try (PrintStream ps = new PrintStream(Files.newOutputStream(out), false, StandardCharsets.UTF_8)) {
+                print(ps, header, samples);
+            }
+        }
+    }
+
+    private static DictionaryService service(Path dictionary) throws IOException {
+        DictionaryService service = new DictionaryService();
+        service.mountFile(dictionary);
+        return service;
+    }
+
+    /**
+     * Runs every operation of the trace in order and times it.
+     */
+    private static Map<WorkloadTrace.Op, Samples> replay(DictionaryService service, List<WorkloadTrace.Event> events,
+                                                         boolean fast) {
+        Map<WorkloadTrace.Op, Samples> samples = new EnumMap<>(WorkloadTrace.Op.class);
+        ImportPlan plan = null;
+        long sink = 0;
+        long start = System.nanoTime();
+        for (WorkloadTrace.Event e : events) {
+            long due = start + e.micros() * 1_000;
+            if (!fast) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            long begin = System.nanoTime();
+            switch (e.op()) {
+                case FIND -> sink += service.find(e.text()).isPresent() ? 1 : 0;
+                case PREFIX -> sink += service.searchPrefix(e.text()).size();
+                case PATTERN -> sink += service.searchPattern(e.text()).size();
+                case SOUNDS_LIKE -> sink += service.soundsLike(e.text()).size();
+                case COMPLETE -> sink += service.complete(e.text(), e.number()).size();
+                case ANAGRAMS -> sink += service.anagrams(e.text()).size();
+                case BUILD -> sink += service.buildableWords(e.text(), e.number()).size();
+                case ADD -> service.addOrUpdate(e.entry());
+                case DELETE -> sink += service.delete(e.text()) ? 1 : 0;
+                case TOP -> sink += service.topSearched(e.number()).size();
+                case COUNT -> sink += service.count();
+                case SORT -> sink += service.sort().size();
+                case CLEAR_HISTORY -> service.clearFrequency();
+                case PLAN_IMPORT -> {
+                    try {
+                        plan = service.planImport(Path.of(e.text()));
+                    } catch (IOException ex) {
+                        System.err.println("Import skipped: " + ex.getMessage());
+                        plan = null;
+                    }
+                }
+                case APPLY_IMPORT -> {
+                    if (plan != null) sink += service.applyImport(plan, e.number() != 0);
+                }
+            }
+            long end = System.nanoTime();
+            samples.computeIfAbsent(e.op(), op -> new Samples()).add(end - (fast ? begin : Math.min(begin, due)));
+        }
+        checksum = sink; // results stay observable, and identical across builds in fast mode
+        return samples;
+    }
+
+    private static void print(PrintStream out, String header, Map<WorkloadTrace.Op, Samples> samples) {
+        out.println(header);
+        out.println("# op count p50_us p90_us p99_us p99.9_us max_us");
+        for (Map.Entry<WorkloadTrace.Op, Samples> e : samples.entrySet()) {
+            double[] s = e.getValue().summary();
+            out.printf(Locale.ROOT, "%-13s %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    e.getKey(), e.getValue().n, s[0], s[1], s[2], s[3], s[4]);
+        }
+    }
+
+    /**
+     * Prints the p99 of two saved results side by side.
+     *
+     * @return false if a p99 regressed by more than maxRegression percent
+     */
+    private static boolean compare(Path baseline, Path candidate, double maxRegression) throws IOException {
+        Map<String, double[]> base = readResults(baseline);
+        Map<String, double[]> cand = readResults(candidate);
+        Set<String> ops = new TreeSet<>(base.keySet());
+        ops.addAll(cand.keySet());
+
+        boolean ok = true;
+        System.out.printf("%-13s %12s %12s %12s %9s%n", "op", "base_p99_us", "cand_p99_us", "diff_us", "diff");
+        for (String op : ops) {
+            double[] b = base.get(op);
+            double[] c = cand.get(op);
+            if (b == null || c == null) {
+                System.out.printf("%-13s %s%n", op, b == null ? "only in candidate" : "only in baseline");
+                continue;
+            }
+            double diff = c[3] - b[3];
+            double pct = b[3] == 0 ? 0 : 100 * diff / b[3];
+            boolean regressed = !Double.isNaN(maxRegression) && pct > maxRegression;
+            ok &= !regressed;
+            System.out.printf(Locale.ROOT, "%-13s %12.1f %12.1f %+12.1f %+8.1f%%%s%n",
+                    op, b[3], c[3], diff, pct, regressed ? "  REGRESSION" : "");
+        }
+        return ok;
+    }
+
+    /**
+     * @return per operation: count, p50, p90, p99, p99.9, max
+     */
+    private static Map<String, double[]> readResults(Path path) throws IOException {
+        Map<String, double[]> results = new HashMap<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] f = line.trim().split("\\s+");
+            if (f.length < 7) throw new IOException("Not a replay result: " + path);
+            double[] v = new double[6];
+            for (int i = 0; i < 6; i++) v[i] = Double.parseDouble(f[i + 1]);
+            results.put(f[0], v);
+        }
+        return results;
+    }
+}
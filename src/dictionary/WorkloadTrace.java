@@ -0,0 +1,185 @@
+package dictionary;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary trace of the operations made on a dictionary service,
+ * written by {@link RecordingService} and replayed by
+ * {@link WorkloadReplayer}.
+ *
+ * <pre>
+ * "DWLT" version start-time-millis
+ * per operation: op, time since the previous operation (microseconds), arguments
+ * </pre>
+ *
+ * Times and numbers are unsigned varints (7 bits per byte), strings a
+ * varint length then UTF-8 bytes, so a keystroke in the filter box costs a
+ * few bytes. Added entries are recorded in full so they can be replayed;
+ * an import records the file path, which must still exist at replay time.
+ */
+final class WorkloadTrace {
+
+    private static final int MAGIC = 0x44574C54; // "DWLT"
+    private static final int VERSION = 1;
+
+    /** Recorded operations; codes are part of the file format */
+    enum Op {
+        FIND(1), PREFIX(2), PATTERN(3), SOUNDS_LIKE(4), COMPLETE(5), ANAGRAMS(6), BUILD(7),
+        ADD(8), DELETE(9), TOP(10), COUNT(11), SORT(12), PLAN_IMPORT(13), APPLY_IMPORT(14),
+        CLEAR_HISTORY(15);
+
+        final int code;
+
+        Op(int code) {
+            this.code = code;
+        }
+
+        static Op of(int code) throws IOException {
+            for (Op op : values()) {
+                if (op.code == code) return op;
+            }
+            throw new IOException("Unknown trace operation " + code);
+        }
+    }
+
+    /**
+     * One recorded operation.
+     *
+     * @param op     operation
+     * @param micros time since the start of the trace
+     * @param text   word, prefix, pattern, letters or path; null if unused
+     * @param number k, minimum length, count or flag; 0 if unused
+     * @param entry  added entry, or null
+     */
+    record Event(Op op, long micros, String text, int number, dictionaryEntry entry) { }
+
+    private WorkloadTrace() { }
+
+    /** Appends operations to a trace file; thread-safe */
+    static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final long startNanos = System.nanoTime();
+        private long lastMicros;
+
+        Writer(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(System.currentTimeMillis());
+        }
+
+        synchronized void write(Op op, String text, int number, dictionaryEntry entry) throws IOException {
+            long micros = (System.nanoTime() - startNanos) / 1_000;
+            out.writeByte(op.code);
+            writeVarLong(out, micros - lastMicros);
+            lastMicros = micros;
+            switch (op) {
+                case FIND, PREFIX, PATTERN, SOUNDS_LIKE, ANAGRAMS, DELETE, PLAN_IMPORT -> writeString(out, text);
+                case COMPLETE, BUILD -> {
+                    writeString(out, text);
+                    writeVarLong(out, number);
+                }
+                case TOP, APPLY_IMPORT -> writeVarLong(out, number);
+                case ADD -> {
+                    writeString(out, entry.getWord());
+                    writeString(out, entry.getPronounce());
+                    writeString(out, entry.getDefinition());
+                    writeString(out, entry.getExample());
+                    List<String> syns = entry.getSyn();
+                    writeVarLong(out, syns.size());
+                    for (String s : syns) writeString(out, s);
+                }
+                default -> { }
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a whole trace.
+     *
+     * @param path trace file
+     * @return operations in recorded order
+     * @throws IOException if the file is not a trace
+     */
+    static List<Event> read(Path path) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a workload trace: " + path);
+            in.readLong();
+            long micros = 0;
+            int code;
+            while ((code = in.read()) >= 0) {
+                Op op = Op.of(code);
+                micros += readVarLong(in);
+                String text = null;
+                int number = 0;
+                dictionaryEntry entry = null;
+                switch (op) {
+                    case FIND, PREFIX, PATTERN, SOUNDS_LIKE, ANAGRAMS, DELETE, PLAN_IMPORT -> text = readString(in);
+                    case COMPLETE, BUILD -> {
+                        text = readString(in);
+                        number = (int) readVarLong(in);
+                    }
+                    case TOP, APPLY_IMPORT -> number = (int) readVarLong(in);
+                    case ADD -> {
+                        String word = readString(in);
+                        String pron = readString(in);
+                        String def = readString(in);
+                        String ex = readString(in);
+                        int n = (int) readVarLong(in);
+                        List<String> syns = new ArrayList<>(n);
+                        for (int i = 0; i < n; i++) syns.add(readString(in));
+                        entry = new dictionaryEntry(word, pron, def, ex, syns);
+                    }
+                    default -> { }
+                }
+                events.add(new Event(op, micros, text, number, entry));
+            }
+        } catch (EOFException e) {
+            // a trace cut short (the recording process was killed) ends at its last whole operation
+        }
+        return events;
+    }
+
+    private static void writeVarLong(DataOutput out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Corrupt varint in trace");
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        long n = readVarLong(in);
+        if (n > 1 << 24) throw new IOException("Corrupt string length in trace");
+        byte[] b = new byte[(int) n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
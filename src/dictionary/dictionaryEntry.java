@@ -3,6 +3,7 @@ package dictionary;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Model class representing a dictionary entry.
@@ -32,6 +33,9 @@ public class dictionaryEntry {
     /** List of synonyms (maximum of 4) */
     private final List<String> syn; // max 4
 
+    /** Normalized lookup key (see {@link KeyNormalizer}); null if the word is */
+    private final String key;
+
     /**
      * Constructs a dictionary entry.
      *
@@ -43,6 +47,7 @@ public class dictionaryEntry {
      */
     public dictionaryEntry(String w, String pro, String def, String ex, List<String> syn) {
         this.word = w;
+        this.key = w == null ? null : KeyNormalizer.normalize(w);
         this.pronounce = pro;
         this.definition = def;
         this.example = ex;
@@ -82,6 +87,14 @@ public class dictionaryEntry {
      */
     public String getWord() { return word; }
 
+    /**
+     * Returns the normalized key used to index this entry. It is computed
+     * once, with the entry, so indexing an entry again allocates nothing.
+     *
+     * @return case- and accent-folded word
+     */
+    public String getKey() { return key; }
+
     /**
      * Returns the pronunciation string.
      *
@@ -109,4 +122,27 @@ public class dictionaryEntry {
      * @return copy of synonyms (max size 4)
      */
     public List<String> getSyn() { return new ArrayList<>(syn); }
+
+    /**
+     * Two entries are equal when every field matches exactly, including the
+     * case of the word as entered.
+     *
+     * @param o object to compare with
+     * @return true if o is an entry with the same content
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof dictionaryEntry e)) return false;
+        return Objects.equals(word, e.word)
+                && Objects.equals(pronounce, e.pronounce)
+                && Objects.equals(definition, e.definition)
+                && Objects.equals(example, e.example)
+                && syn.equals(e.syn);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(word, pronounce, definition, example, syn);
+    }
 }
\ No newline at end of file